@@ -43,6 +43,23 @@ public class KintoneConfiguration extends AbstractConfiguration {
     private Set<String> ignoreOrganization = new HashSet<>();
     private Set<String> ignoreGroup = new HashSet<>();
     private String organizationTitleDelimiter = "#";
+    private int queryConcurrency = 1;
+    private int queryLookAheadPages = 1;
+    private boolean bulkWriteEnabled = false;
+    private int bulkWriteLingerInMilliseconds = 10;
+    private int bulkWriteMaxSize = 100;
+    private boolean bulkReadEnabled = false;
+    private int bulkReadLingerInMilliseconds = 5;
+    private int retryCount = 2;
+    private int retryBaseDelayInMilliseconds = 200;
+    private int retryMaxDelayInMilliseconds = 5000;
+    private int retryBudgetInMilliseconds = 30000;
+    private int rateLimitMaxRequestsPerSecond = 0;
+    private int rateLimitMaxConcurrentRequests = 0;
+    private int circuitBreakerFailureRateThreshold = 0;
+    private int circuitBreakerSlowCallRateThreshold = 0;
+    private int circuitBreakerSlowCallDurationInMilliseconds = 5000;
+    private int circuitBreakerOpenDurationInMilliseconds = 30000;
 
     @ConfigurationProperty(
             order = 1,
@@ -251,6 +268,21 @@ public class KintoneConfiguration extends AbstractConfiguration {
         return ignoreOrganization;
     }
 
+    /**
+     * Check whether the organization membership is ignored.
+     * It's matched by the organization code regardless of the title.
+     *
+     * @param organization organization code, or organization code and title code joined with the delimiter
+     * @return
+     */
+    public boolean isIgnoredOrganization(String organization) {
+        if (ignoreOrganization.contains(organization)) {
+            return true;
+        }
+        int index = organization.indexOf(organizationTitleDelimiter);
+        return index >= 0 && ignoreOrganization.contains(organization.substring(0, index));
+    }
+
     @ConfigurationProperty(
             order = 15,
             displayMessageKey = "Ignore Group",
@@ -283,6 +315,258 @@ public class KintoneConfiguration extends AbstractConfiguration {
         this.organizationTitleDelimiter = organizationTitleDelimiter;
     }
 
+    @ConfigurationProperty(
+            order = 17,
+            displayMessageKey = "Query Concurrency",
+            helpMessageKey = "Max number of the page requests in flight when fetching all users, organizations or groups. " +
+                    "With N, the next N-1 pages are fetched while the current page is handled even if Query Look-Ahead Pages is smaller. " +
+                    "It also bounds the number of the organizations or groups whose members are fetched at the same time for the organizations or groups of all users. " +
+                    "Keep it under the concurrent request limit of the kintone domain. (Default: 1)",
+            required = false,
+            confidential = false)
+    public int getQueryConcurrency() {
+        return queryConcurrency;
+    }
+
+    public void setQueryConcurrency(int queryConcurrency) {
+        this.queryConcurrency = queryConcurrency;
+    }
+
+    @ConfigurationProperty(
+            order = 18,
+            displayMessageKey = "Bulk Write",
+            helpMessageKey = "If true, the concurrent write requests are coalesced into one bulk request. (Default: false)",
+            required = false,
+            confidential = false)
+    public boolean isBulkWriteEnabled() {
+        return bulkWriteEnabled;
+    }
+
+    public void setBulkWriteEnabled(boolean bulkWriteEnabled) {
+        this.bulkWriteEnabled = bulkWriteEnabled;
+    }
+
+    @ConfigurationProperty(
+            order = 19,
+            displayMessageKey = "Bulk Write Linger (in milliseconds)",
+            helpMessageKey = "Time to wait for collecting the other write requests into the bulk request. (Default: 10)",
+            required = false,
+            confidential = false)
+    public int getBulkWriteLingerInMilliseconds() {
+        return bulkWriteLingerInMilliseconds;
+    }
+
+    public void setBulkWriteLingerInMilliseconds(int bulkWriteLingerInMilliseconds) {
+        this.bulkWriteLingerInMilliseconds = bulkWriteLingerInMilliseconds;
+    }
+
+    @ConfigurationProperty(
+            order = 20,
+            displayMessageKey = "Bulk Write Max Size",
+            helpMessageKey = "Max number of the objects in one bulk request. Kintone accepts up to 100. (Default: 100)",
+            required = false,
+            confidential = false)
+    public int getBulkWriteMaxSize() {
+        return bulkWriteMaxSize;
+    }
+
+    public void setBulkWriteMaxSize(int bulkWriteMaxSize) {
+        this.bulkWriteMaxSize = bulkWriteMaxSize;
+    }
+
+    @ConfigurationProperty(
+            order = 21,
+            displayMessageKey = "Bulk Read",
+            helpMessageKey = "If true, the concurrent lookups of the single object by the id or the code are coalesced into one request. (Default: false)",
+            required = false,
+            confidential = false)
+    public boolean isBulkReadEnabled() {
+        return bulkReadEnabled;
+    }
+
+    public void setBulkReadEnabled(boolean bulkReadEnabled) {
+        this.bulkReadEnabled = bulkReadEnabled;
+    }
+
+    @ConfigurationProperty(
+            order = 22,
+            displayMessageKey = "Bulk Read Linger (in milliseconds)",
+            helpMessageKey = "Time to wait for collecting the other lookups into the bulk request. (Default: 5)",
+            required = false,
+            confidential = false)
+    public int getBulkReadLingerInMilliseconds() {
+        return bulkReadLingerInMilliseconds;
+    }
+
+    public void setBulkReadLingerInMilliseconds(int bulkReadLingerInMilliseconds) {
+        this.bulkReadLingerInMilliseconds = bulkReadLingerInMilliseconds;
+    }
+
+    @ConfigurationProperty(
+            order = 23,
+            displayMessageKey = "Retry Count",
+            helpMessageKey = "Maximum number of the retries when the request fails with the transient error. " +
+                    "GET is retried on the network error, 5xx and 429. PUT and DELETE are retried on 503 and 429 only. " +
+                    "POST is never retried. Set 0 to disable the retry. (Default: 2)",
+            required = false,
+            confidential = false)
+    public int getRetryCount() {
+        return retryCount;
+    }
+
+    public void setRetryCount(int retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    @ConfigurationProperty(
+            order = 24,
+            displayMessageKey = "Retry Base Delay (in milliseconds)",
+            helpMessageKey = "Base delay of the exponential backoff between the retries. (Default: 200)",
+            required = false,
+            confidential = false)
+    public int getRetryBaseDelayInMilliseconds() {
+        return retryBaseDelayInMilliseconds;
+    }
+
+    public void setRetryBaseDelayInMilliseconds(int retryBaseDelayInMilliseconds) {
+        this.retryBaseDelayInMilliseconds = retryBaseDelayInMilliseconds;
+    }
+
+    @ConfigurationProperty(
+            order = 25,
+            displayMessageKey = "Retry Max Delay (in milliseconds)",
+            helpMessageKey = "Maximum delay between the retries. The Retry-After header from the server is also capped by this value. (Default: 5000)",
+            required = false,
+            confidential = false)
+    public int getRetryMaxDelayInMilliseconds() {
+        return retryMaxDelayInMilliseconds;
+    }
+
+    public void setRetryMaxDelayInMilliseconds(int retryMaxDelayInMilliseconds) {
+        this.retryMaxDelayInMilliseconds = retryMaxDelayInMilliseconds;
+    }
+
+    @ConfigurationProperty(
+            order = 26,
+            displayMessageKey = "Retry Budget (in milliseconds)",
+            helpMessageKey = "Total time allowed for a request including the retries. No more retry is done when the next retry exceeds it. (Default: 30000)",
+            required = false,
+            confidential = false)
+    public int getRetryBudgetInMilliseconds() {
+        return retryBudgetInMilliseconds;
+    }
+
+    public void setRetryBudgetInMilliseconds(int retryBudgetInMilliseconds) {
+        this.retryBudgetInMilliseconds = retryBudgetInMilliseconds;
+    }
+
+    @ConfigurationProperty(
+            order = 27,
+            displayMessageKey = "Rate Limit Max Requests Per Second",
+            helpMessageKey = "Maximum requests per second to the kintone domain, shared by all connector instances. " +
+                    "The rate is halved when kintone throttles the request and grows back while the requests succeed. " +
+                    "Set 0 to disable, e.g. 50 to enable. (Default: 0, disabled)",
+            required = false,
+            confidential = false)
+    public int getRateLimitMaxRequestsPerSecond() {
+        return rateLimitMaxRequestsPerSecond;
+    }
+
+    public void setRateLimitMaxRequestsPerSecond(int rateLimitMaxRequestsPerSecond) {
+        this.rateLimitMaxRequestsPerSecond = rateLimitMaxRequestsPerSecond;
+    }
+
+    @ConfigurationProperty(
+            order = 28,
+            displayMessageKey = "Rate Limit Max Concurrent Requests",
+            helpMessageKey = "Maximum concurrent requests to the kintone domain, shared by all connector instances. " +
+                    "The limit is halved when kintone throttles the request and grows back while the requests succeed. " +
+                    "Set 0 to disable, e.g. 20 to enable. (Default: 0, disabled)",
+            required = false,
+            confidential = false)
+    public int getRateLimitMaxConcurrentRequests() {
+        return rateLimitMaxConcurrentRequests;
+    }
+
+    public void setRateLimitMaxConcurrentRequests(int rateLimitMaxConcurrentRequests) {
+        this.rateLimitMaxConcurrentRequests = rateLimitMaxConcurrentRequests;
+    }
+
+    @ConfigurationProperty(
+            order = 29,
+            displayMessageKey = "Circuit Breaker Failure Rate Threshold",
+            helpMessageKey = "Failure rate (in percentage) of the recent requests to open the circuit breaker. " +
+                    "While it's open, the requests fail fast without calling kintone. " +
+                    "Set 0 to disable the failure rate check, e.g. 50 to enable. " +
+                    "The circuit breaker is disabled when both thresholds are 0. (Default: 0, disabled)",
+            required = false,
+            confidential = false)
+    public int getCircuitBreakerFailureRateThreshold() {
+        return circuitBreakerFailureRateThreshold;
+    }
+
+    public void setCircuitBreakerFailureRateThreshold(int circuitBreakerFailureRateThreshold) {
+        this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+    }
+
+    @ConfigurationProperty(
+            order = 30,
+            displayMessageKey = "Circuit Breaker Slow Call Rate Threshold",
+            helpMessageKey = "Slow call rate (in percentage) of the recent requests to open the circuit breaker. " +
+                    "Set 0 to disable the slow call rate check, e.g. 80 to enable. (Default: 0, disabled)",
+            required = false,
+            confidential = false)
+    public int getCircuitBreakerSlowCallRateThreshold() {
+        return circuitBreakerSlowCallRateThreshold;
+    }
+
+    public void setCircuitBreakerSlowCallRateThreshold(int circuitBreakerSlowCallRateThreshold) {
+        this.circuitBreakerSlowCallRateThreshold = circuitBreakerSlowCallRateThreshold;
+    }
+
+    @ConfigurationProperty(
+            order = 31,
+            displayMessageKey = "Circuit Breaker Slow Call Duration (in milliseconds)",
+            helpMessageKey = "Duration to regard the request as slow for the circuit breaker. (Default: 5000)",
+            required = false,
+            confidential = false)
+    public int getCircuitBreakerSlowCallDurationInMilliseconds() {
+        return circuitBreakerSlowCallDurationInMilliseconds;
+    }
+
+    public void setCircuitBreakerSlowCallDurationInMilliseconds(int circuitBreakerSlowCallDurationInMilliseconds) {
+        this.circuitBreakerSlowCallDurationInMilliseconds = circuitBreakerSlowCallDurationInMilliseconds;
+    }
+
+    @ConfigurationProperty(
+            order = 32,
+            displayMessageKey = "Circuit Breaker Open Duration (in milliseconds)",
+            helpMessageKey = "Duration to keep the circuit breaker open before probing kintone with the test endpoint. (Default: 30000)",
+            required = false,
+            confidential = false)
+    public int getCircuitBreakerOpenDurationInMilliseconds() {
+        return circuitBreakerOpenDurationInMilliseconds;
+    }
+
+    public void setCircuitBreakerOpenDurationInMilliseconds(int circuitBreakerOpenDurationInMilliseconds) {
+        this.circuitBreakerOpenDurationInMilliseconds = circuitBreakerOpenDurationInMilliseconds;
+    }
+
+    @ConfigurationProperty(
+            order = 33,
+            displayMessageKey = "Query Look-Ahead Pages",
+            helpMessageKey = "Number of the pages fetched ahead while the current page is handled when fetching all users, " +
+                    "organizations or groups. 0 fetches the pages sequentially. (Default: 1)",
+            required = false,
+            confidential = false)
+    public int getQueryLookAheadPages() {
+        return queryLookAheadPages;
+    }
+
+    public void setQueryLookAheadPages(int queryLookAheadPages) {
+        this.queryLookAheadPages = queryLookAheadPages;
+    }
+
     @Override
     public void validate() {
         if (baseURL == null) {
@@ -294,5 +578,50 @@ public class KintoneConfiguration extends AbstractConfiguration {
         if (password == null) {
             throw new ConfigurationException("Kintone password is required");
         }
+        if (queryConcurrency < 1) {
+            throw new ConfigurationException("Kintone queryConcurrency must be 1 or more");
+        }
+        if (queryLookAheadPages < 0) {
+            throw new ConfigurationException("Kintone queryLookAheadPages must be 0 or more");
+        }
+        if (bulkWriteLingerInMilliseconds < 0) {
+            throw new ConfigurationException("Kintone bulkWriteLingerInMilliseconds must be 0 or more");
+        }
+        if (bulkWriteMaxSize < 1 || bulkWriteMaxSize > 100) {
+            throw new ConfigurationException("Kintone bulkWriteMaxSize must be between 1 and 100");
+        }
+        if (bulkReadLingerInMilliseconds < 0) {
+            throw new ConfigurationException("Kintone bulkReadLingerInMilliseconds must be 0 or more");
+        }
+        if (retryCount < 0) {
+            throw new ConfigurationException("Kintone retryCount must be 0 or more");
+        }
+        if (retryBaseDelayInMilliseconds < 0) {
+            throw new ConfigurationException("Kintone retryBaseDelayInMilliseconds must be 0 or more");
+        }
+        if (retryMaxDelayInMilliseconds < retryBaseDelayInMilliseconds) {
+            throw new ConfigurationException("Kintone retryMaxDelayInMilliseconds must be retryBaseDelayInMilliseconds or more");
+        }
+        if (retryBudgetInMilliseconds < 0) {
+            throw new ConfigurationException("Kintone retryBudgetInMilliseconds must be 0 or more");
+        }
+        if (rateLimitMaxRequestsPerSecond < 0) {
+            throw new ConfigurationException("Kintone rateLimitMaxRequestsPerSecond must be 0 or more");
+        }
+        if (rateLimitMaxConcurrentRequests < 0) {
+            throw new ConfigurationException("Kintone rateLimitMaxConcurrentRequests must be 0 or more");
+        }
+        if (circuitBreakerFailureRateThreshold < 0 || circuitBreakerFailureRateThreshold > 100) {
+            throw new ConfigurationException("Kintone circuitBreakerFailureRateThreshold must be between 0 and 100");
+        }
+        if (circuitBreakerSlowCallRateThreshold < 0 || circuitBreakerSlowCallRateThreshold > 100) {
+            throw new ConfigurationException("Kintone circuitBreakerSlowCallRateThreshold must be between 0 and 100");
+        }
+        if (circuitBreakerSlowCallDurationInMilliseconds < 1) {
+            throw new ConfigurationException("Kintone circuitBreakerSlowCallDurationInMilliseconds must be 1 or more");
+        }
+        if (circuitBreakerOpenDurationInMilliseconds < 0) {
+            throw new ConfigurationException("Kintone circuitBreakerOpenDurationInMilliseconds must be 0 or more");
+        }
     }
 }
@@ -17,6 +17,7 @@ package jp.openstandia.connector.kintone;
 
 import jp.openstandia.connector.util.ObjectHandler;
 import jp.openstandia.connector.util.SchemaDefinition;
+import jp.openstandia.connector.util.SharedHttpClients;
 import jp.openstandia.connector.util.Utils;
 import okhttp3.*;
 import org.identityconnectors.common.StringUtil;
@@ -43,11 +44,14 @@ public class KintoneConnector implements PoolableConnector, CreateOp, UpdateDelt
 
     private static final Log LOG = Log.getLog(KintoneConnector.class);
 
+    private static final int DISPATCHER_MAX_REQUESTS = 256;
+
     protected KintoneConfiguration configuration;
     protected KintoneRESTClient client;
 
     private KintoneSchema cachedSchema;
     private String instanceName;
+    private String httpClientKey;
 
     @Override
     public Configuration getConfiguration() {
@@ -68,49 +72,92 @@ public class KintoneConnector implements PoolableConnector, CreateOp, UpdateDelt
     }
 
     protected void authenticateResource() {
+        // Share the connection pool and the dispatcher with other connector instances using the same network settings
+        String key = httpClientKey();
+        OkHttpClient sharedClient = SharedHttpClients.acquire(key, this::newHttpClient);
+        httpClientKey = key;
+
+        try {
+            OkHttpClient.Builder okHttpBuilder = sharedClient.newBuilder();
+            okHttpBuilder.addInterceptor(getInterceptor(configuration.getLoginName(), configuration.getPassword()));
+
+            // Setup http proxy authentication
+            if (StringUtil.isNotEmpty(configuration.getHttpProxyHost())) {
+                if (StringUtil.isNotEmpty(configuration.getHttpProxyUser()) && configuration.getHttpProxyPassword() != null) {
+                    configuration.getHttpProxyPassword().access(c -> {
+                        okHttpBuilder.proxyAuthenticator((Route route, Response response) -> {
+                            String credential = Credentials.basic(configuration.getHttpProxyUser(), String.valueOf(c));
+                            return response.request().newBuilder()
+                                    .header("Proxy-Authorization", credential)
+                                    .build();
+                        });
+                    });
+                }
+            }
+
+            OkHttpClient httpClient = okHttpBuilder.build();
+
+            client = new KintoneRESTClient();
+            client.init(instanceName, configuration, httpClient);
+
+            // Verify we can access the kintone API
+            client.test();
+        } catch (RuntimeException e) {
+            // Don't leak the reference when the initialization fails
+            client = null;
+            httpClientKey = null;
+            SharedHttpClients.release(key);
+            throw e;
+        }
+    }
+
+    private String httpClientKey() {
+        return configuration.getBaseURL()
+                + "|" + configuration.getHttpProxyHost() + ":" + configuration.getHttpProxyPort()
+                + "|" + configuration.getConnectionTimeoutInMilliseconds()
+                + "|" + configuration.getReadTimeoutInMilliseconds()
+                + "|" + configuration.getWriteTimeoutInMilliseconds();
+    }
+
+    private OkHttpClient newHttpClient() {
         OkHttpClient.Builder okHttpBuilder = new OkHttpClient.Builder();
         okHttpBuilder.connectTimeout(configuration.getConnectionTimeoutInMilliseconds(), TimeUnit.MILLISECONDS);
         okHttpBuilder.readTimeout(configuration.getReadTimeoutInMilliseconds(), TimeUnit.MILLISECONDS);
         okHttpBuilder.writeTimeout(configuration.getWriteTimeoutInMilliseconds(), TimeUnit.MILLISECONDS);
-        okHttpBuilder.addInterceptor(getInterceptor(configuration.getLoginName(), configuration.getPassword()));
+
+        // All calls are dispatched asynchronously and the concurrency is controlled by the rate limiter,
+        // so don't let the dispatcher's default limit (5 per host) become the bottleneck
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(DISPATCHER_MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(DISPATCHER_MAX_REQUESTS);
+        okHttpBuilder.dispatcher(dispatcher);
 
         // Setup http proxy aware httpClient
         if (StringUtil.isNotEmpty(configuration.getHttpProxyHost())) {
             okHttpBuilder.proxy(new Proxy(Proxy.Type.HTTP,
                     new InetSocketAddress(configuration.getHttpProxyHost(), configuration.getHttpProxyPort())));
-
-            if (StringUtil.isNotEmpty(configuration.getHttpProxyUser()) && configuration.getHttpProxyPassword() != null) {
-                configuration.getHttpProxyPassword().access(c -> {
-                    okHttpBuilder.proxyAuthenticator((Route route, Response response) -> {
-                        String credential = Credentials.basic(configuration.getHttpProxyUser(), String.valueOf(c));
-                        return response.request().newBuilder()
-                                .header("Proxy-Authorization", credential)
-                                .build();
-                    });
-                });
-            }
         }
 
-        OkHttpClient httpClient = okHttpBuilder.build();
-
-        client = new KintoneRESTClient();
-        client.init(instanceName, configuration, httpClient);
-
-        // Verify we can access the kintone API
-        client.test();
+        return okHttpBuilder.build();
     }
 
     private Interceptor getInterceptor(String loginName, GuardedString accessToken) {
+        // The credentials only change with a new configuration which creates a new interceptor,
+        // so encode the header value once instead of decrypting the password for each request
+        String[] authorization = new String[1];
+        accessToken.access(c -> {
+            authorization[0] = Base64.getEncoder().encodeToString((loginName + ":" + String.valueOf(c)).getBytes(StandardCharsets.UTF_8));
+        });
+        String authorizationValue = authorization[0];
+
         return new Interceptor() {
             @Override
             public Response intercept(Chain chain) throws IOException {
-                Request.Builder builder = chain.request().newBuilder()
-                        .addHeader("Accept", "application/json");
-                accessToken.access(c -> {
-                    builder.addHeader("X-Cybozu-Authorization",
-                            Base64.getEncoder().encodeToString((loginName + ":" + String.valueOf(c)).getBytes(StandardCharsets.UTF_8)));
-                });
-                return chain.proceed(builder.build());
+                Request request = chain.request().newBuilder()
+                        .addHeader("Accept", "application/json")
+                        .addHeader("X-Cybozu-Authorization", authorizationValue)
+                        .build();
+                return chain.proceed(request);
             }
         };
     }
@@ -248,18 +295,35 @@ public class KintoneConnector implements PoolableConnector, CreateOp, UpdateDelt
 
     @Override
     public void test() {
+        // Acquire the new client before releasing the current one to keep the shared connection pool warm
+        KintoneRESTClient previousClient = this.client;
+        String previousKey = this.httpClientKey;
         try {
-            dispose();
+            this.httpClientKey = null;
+            this.cachedSchema = null;
             authenticateResource();
         } catch (RuntimeException e) {
             throw processRuntimeException(e);
+        } finally {
+            if (previousClient != null && previousClient != this.client) {
+                previousClient.close();
+            }
+            if (previousKey != null) {
+                SharedHttpClients.release(previousKey);
+            }
         }
     }
 
     @Override
     public void dispose() {
-        client.close();
+        if (client != null) {
+            client.close();
+        }
+        if (httpClientKey != null) {
+            SharedHttpClients.release(httpClientKey);
+        }
         this.client = null;
+        this.httpClientKey = null;
         this.cachedSchema = null;
     }
 
@@ -123,7 +123,7 @@ public class KintoneGroupHandler implements ObjectHandler {
 
         if (dest.hasAttributesChange()) {
             // Need to specify the current code for update
-            dest.code = uid.getNameHintValue();
+            dest.code = resolvedUid.getNameHintValue();
             client.updateGroup(resolvedUid, dest);
         }
 
@@ -132,7 +132,7 @@ public class KintoneOrganizationHandler implements ObjectHandler {
 
         if (dest.hasAttributesChange()) {
             // Need to specify the current code for update
-            dest.code = uid.getNameHintValue();
+            dest.code = resolvedUid.getNameHintValue();
             client.updateOrganization(resolvedUid, dest);
         }
 
@@ -15,21 +15,42 @@
  */
 package jp.openstandia.connector.kintone;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectReader;
 import jp.openstandia.connector.util.AbstractRESTClient;
+import jp.openstandia.connector.util.AdaptiveRateLimiter;
+import jp.openstandia.connector.util.CircuitBreaker;
+import jp.openstandia.connector.util.JsonCodec;
 import jp.openstandia.connector.util.QueryHandler;
+import jp.openstandia.connector.util.RenamePlanner;
+import jp.openstandia.connector.util.RequestCoalescer;
+import jp.openstandia.connector.util.RetryPolicy;
+import jp.openstandia.connector.util.UrlTemplate;
+import jp.openstandia.connector.util.Workers;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
 import okhttp3.Response;
 import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.exceptions.AlreadyExistsException;
 import org.identityconnectors.framework.common.exceptions.ConnectionFailedException;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
 import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+import org.identityconnectors.framework.common.exceptions.InvalidAttributeValueException;
 import org.identityconnectors.framework.common.exceptions.UnknownUidException;
 import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.ObjectClass;
 import org.identityconnectors.framework.common.objects.OperationOptions;
 import org.identityconnectors.framework.common.objects.Uid;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -39,6 +60,11 @@ import static jp.openstandia.connector.kintone.KintoneUserHandler.USER_OBJECT_CL
 
 public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration> {
     private static final Log LOG = Log.getLog(KintoneRESTClient.class);
+    // Error responses are small and rare, always read them with the standard codec
+    private static final ObjectReader ERROR_RESPONSE_READER = JsonCodec.standard().readerFor(ErrorResponse.class);
+
+    // Kintone accepts up to 100 codes in one request
+    public static final int MAX_CODES_PER_REQUEST = 100;
     private ErrorHandler ERROR_HANDLER = new KintoneErrorHandler();
 
     private String testEndpoint;
@@ -50,8 +76,10 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
     private String userGroupsEndpoint;
     private String organizationEndpoint;
     private String organizationRenameEndpoint;
+    private String organizationUsersEndpoint;
     private String groupEndpoint;
     private String groupRenameEndpoint;
+    private String groupUsersEndpoint;
 
     static class ErrorResponse {
         public String id;
@@ -84,6 +112,18 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
         public Title title;
     }
 
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class OrganizationUserBody {
+        public IdCode user;
+        public Title title;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class IdCode {
+        public String id;
+        public String code;
+    }
+
     static class Title {
         public String id;
         public String code;
@@ -124,21 +164,30 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
     }
 
     class KintoneErrorHandler implements ErrorHandler {
+        // The error message depends on the API user's locale
+        private final String[] ALREADY_EXISTS_KEYWORDS = new String[]{
+                "すでに登録されています",
+                "already exists",
+                "已存在"
+        };
+        private final String[] NOT_FOUND_KEYWORDS = new String[]{
+                "見つかりません",
+                "not found",
+                "未找到指定的",
+                "未找到相應的"
+        };
+        private final String[] CODE_FIELDS = new String[]{
+                "users.code",
+                "groups.code",
+                "organizations.code"
+        };
+
         @Override
         public boolean inNotAuthenticated(Response response) {
             if (response.code() != 520) {
                 return false;
             }
-            try {
-                String bodyText = snapshotResponse(response);
-
-                ErrorResponse res = MAPPER.readValue(bodyText, ErrorResponse.class);
-
-                return res.code.equals("CB_WA01") // Invalid credential
-                        || res.code.equals("CB_AU01"); // No auth header
-            } catch (IOException e) {
-                throw new ConnectorIOException(e);
-            }
+            return classify(response).getCategory() == ClassifiedError.Category.NOT_AUTHENTICATED;
         }
 
         @Override
@@ -146,58 +195,7 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
             if (response.code() != 400) {
                 return false;
             }
-
-            String bodyText = snapshotResponse(response);
-
-            try {
-                ErrorResponse res = MAPPER.readValue(bodyText, ErrorResponse.class);
-
-                if (!res.code.equals("CB_VA01")) {
-                    return false;
-                }
-
-                String[] keywords = new String[]{
-                        "すでに登録されています",
-                        "already exists",
-                        "已存在"
-                };
-
-                if (res.errors.containsKey("users.code")) {
-                    return hasMessage(res.errors, "users.code", keywords);
-                }
-                if (res.errors.containsKey("groups.code")) {
-                    return hasMessage(res.errors, "groups.code", keywords);
-                }
-                if (res.errors.containsKey("organizations.code")) {
-                    return hasMessage(res.errors, "organizations.code", keywords);
-                }
-            } catch (IOException e) {
-                throw new ConnectorIOException(e);
-            }
-
-            return false;
-        }
-
-        private boolean hasMessage(Map<String, Map<String, List<String>>> error, String key, String... keywords) {
-            Map<String, List<String>> message = error.get(key);
-            if (message != null) {
-                List<String> messages = message.get("messages");
-                if (messages == null) {
-                    return false;
-                }
-                Optional<String> found = messages.stream().filter(m -> {
-                            // The error message depends on the API user's locale
-                            for (String k : keywords) {
-                                if (m.contains(k)) {
-                                    return true;
-                                }
-                            }
-                            return false;
-                        })
-                        .findFirst();
-                return found.isPresent();
-            }
-            return false;
+            return classify(response).isAlreadyExists();
         }
 
         @Override
@@ -210,52 +208,111 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
             if (response.code() != 400) {
                 return false;
             }
+            return classify(response).isNotFound();
+        }
 
-            String bodyText = snapshotResponse(response);
-
-            try {
-                ErrorResponse res = MAPPER.readValue(bodyText, ErrorResponse.class);
-
-                if (!res.code.equals("CB_VA01")) {
-                    return false;
-                }
+        @Override
+        public boolean isOk(Response response) {
+            return response.code() == 200 || response.code() == 204;
+        }
 
-                String[] keywords = new String[]{
-                        "見つかりません",
-                        "not found",
-                        "未找到指定的",
-                        "未找到相應的"
-                };
+        @Override
+        public boolean isServerError(Response response) {
+            return response.code() >= 500 && response.code() <= 599;
+        }
 
-                if (res.errors.containsKey("users.code")) {
-                    return hasMessage(res.errors, "users.code", keywords);
-                }
-                if (res.errors.containsKey("groups.code")) {
-                    return hasMessage(res.errors, "groups.code", keywords);
+        /**
+         * Classify the response parsing the error body only once.
+         *
+         * @param response
+         * @return
+         */
+        @Override
+        public ClassifiedError classify(Response response) {
+            int code = response.code();
+            if (isOk(response)) {
+                return ClassifiedError.OK;
+            }
+            if (code != 400 && code != 520) {
+                if (code == 429) {
+                    return new ClassifiedError(ClassifiedError.Category.THROTTLED, null, null);
                 }
-                if (res.errors.containsKey("organizations.code")) {
-                    return hasMessage(res.errors, "organizations.code", keywords);
+                if (isServerError(response)) {
+                    return new ClassifiedError(ClassifiedError.Category.SERVER_ERROR, null, null);
                 }
+                return new ClassifiedError(ClassifiedError.Category.UNKNOWN, null, null);
+            }
+
+            String bodyText = snapshotResponse(response);
+            ErrorResponse res;
+            try {
+                res = ERROR_RESPONSE_READER.readValue(bodyText);
             } catch (IOException e) {
                 throw new ConnectorIOException(e);
             }
 
-            return false;
+            if (code == 520) {
+                if ("CB_WA01".equals(res.code) // Invalid credential
+                        || "CB_AU01".equals(res.code)) { // No auth header
+                    return new ClassifiedError(ClassifiedError.Category.NOT_AUTHENTICATED, res.code, bodyText);
+                }
+                return new ClassifiedError(ClassifiedError.Category.SERVER_ERROR, res.code, bodyText);
+            }
+
+            return new ClassifiedError(classifyInvalidRequest(res), res.code, bodyText);
         }
 
-        @Override
-        public boolean isOk(Response response) {
-            return response.code() == 200 || response.code() == 204;
+        private ClassifiedError.Category classifyInvalidRequest(ErrorResponse res) {
+            if (!"CB_VA01".equals(res.code) || res.errors == null) {
+                return ClassifiedError.Category.INVALID_REQUEST;
+            }
+            for (String field : CODE_FIELDS) {
+                Map<String, List<String>> error = res.errors.get(field);
+                if (error == null) {
+                    continue;
+                }
+                List<String> messages = error.get("messages");
+                if (messages != null) {
+                    // Check all keywords in one pass
+                    for (String m : messages) {
+                        if (containsAny(m, ALREADY_EXISTS_KEYWORDS)) {
+                            return ClassifiedError.Category.ALREADY_EXISTS;
+                        }
+                        if (containsAny(m, NOT_FOUND_KEYWORDS)) {
+                            return ClassifiedError.Category.NOT_FOUND;
+                        }
+                    }
+                }
+                // Only the first code field is checked
+                break;
+            }
+            return ClassifiedError.Category.INVALID_REQUEST;
         }
 
-        @Override
-        public boolean isServerError(Response response) {
-            return response.code() >= 500 && response.code() <= 599;
+        private boolean containsAny(String message, String[] keywords) {
+            for (String k : keywords) {
+                if (message.contains(k)) {
+                    return true;
+                }
+            }
+            return false;
         }
     }
 
     public void init(String instanceName, KintoneConfiguration configuration, OkHttpClient httpClient) {
         super.init(instanceName, configuration, httpClient, ERROR_HANDLER, 0);
+        this.retryCount = configuration.getRetryCount();
+        this.retryPolicy = new RetryPolicy(configuration.getRetryBaseDelayInMilliseconds(),
+                configuration.getRetryMaxDelayInMilliseconds(), configuration.getRetryBudgetInMilliseconds());
+        // Share the rate limiter between the connector instances for the same kintone domain
+        this.rateLimiter = AdaptiveRateLimiter.shared(configuration.getBaseURL(),
+                configuration.getRateLimitMaxRequestsPerSecond(), configuration.getRateLimitMaxConcurrentRequests());
+        this.pageLookAhead = configuration.getQueryLookAheadPages();
+        // Share the identical GET requests between the connector instances for the same kintone account
+        this.singleFlightScope = configuration.getBaseURL() + ":" + configuration.getLoginName();
+        this.circuitBreaker = CircuitBreaker.shared(configuration.getBaseURL(),
+                configuration.getCircuitBreakerFailureRateThreshold(), configuration.getCircuitBreakerSlowCallRateThreshold(),
+                configuration.getCircuitBreakerSlowCallDurationInMilliseconds(), configuration.getCircuitBreakerOpenDurationInMilliseconds());
         this.testEndpoint = configuration.getBaseURL() + "/v1/users.json?size=1";
         this.userEndpoint = configuration.getBaseURL() + "/v1/users.json";
         this.userRenameEndpoint = configuration.getBaseURL() + "/v1/users/codes.json";
@@ -265,8 +322,10 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
         this.userGroupsEndpoint = configuration.getBaseURL() + "/v1/user/groups.json";
         this.organizationEndpoint = configuration.getBaseURL() + "/v1/organizations.json";
         this.organizationRenameEndpoint = configuration.getBaseURL() + "/v1/organizations/codes.json";
+        this.organizationUsersEndpoint = configuration.getBaseURL() + "/v1/organization/users.json";
         this.groupEndpoint = configuration.getBaseURL() + "/v1/groups.json";
         this.groupRenameEndpoint = configuration.getBaseURL() + "/v1/groups/codes.json";
+        this.groupUsersEndpoint = configuration.getBaseURL() + "/v1/group/users.json";
     }
 
     public void test() {
@@ -287,133 +346,711 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
         }
     }
 
-    // User
-
-    public Uid createUser(KintoneUserModel newUser) throws AlreadyExistsException {
-        ListBody body = new ListBody();
-        body.users = new ArrayList<>(1);
-        body.users.add(newUser);
+    @Override
+    protected CompletableFuture<Boolean> probeAsync() {
+        // Call the lightweight endpoint directly, bypassing the retry and the rate limiter
+        Request request = new Request.Builder()
+                .url(testEndpoint)
+                .get()
+                .build();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                LOG.info("{0} circuit breaker probe failed: {1}", instanceName, e.toString());
+                result.complete(false);
+            }
 
-        callCreate(USER_OBJECT_CLASS, userEndpoint, body, newUser.code);
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    LOG.info("{0} circuit breaker probe, statusCode: {1}", instanceName, r.code());
+                    result.complete(r.code() == 200);
+                }
+            }
+        });
+        return result;
+    }
 
-        // We need to fetch the created object for getting the generated id
-        KintoneUserModel created = getUser(new Name(newUser.code), null, null);
+    @Override
+    public void close() {
+        LOG.ok("Rate limiter status: {0}, circuit breaker state: {1}", rateLimiter, circuitBreaker.getState());
+        super.close();
+    }
 
-        return new Uid(created.id, newUser.code);
+    // Bulk read
+
+    /**
+     * Lookup the single object by the id or the code.
+     * The lookups issued concurrently are coalesced into one request (up to {@link #MAX_CODES_PER_REQUEST}),
+     * then the result is passed to each caller.
+     *
+     * @param operation
+     * @param endpoint
+     * @param fieldName field name of the array in the response
+     * @param paramName "ids" or "codes"
+     * @param value
+     * @param type
+     * @param key       returns the id or the code of the object
+     * @param label     object name for the error message
+     * @return
+     */
+    protected <T> T lookupInBulk(String operation, String endpoint, String fieldName, String paramName, String value,
+                                 Class<T> type, Function<T, String> key, String label) {
+        return await(lookupInBulkAsync(operation, endpoint, fieldName, paramName, value, type, key, label));
     }
 
-    public KintoneUserModel getUser(Uid uid, OperationOptions options, Set<String> fetchFieldsSet) throws UnknownUidException {
-        Map<String, String> params = new HashMap<>();
-        params.put("ids", uid.getUidValue());
+    /**
+     * Asynchronous version of {@link #lookupInBulk}. No thread is blocked while the lookups are coalesced
+     * or while waiting for the response.
+     *
+     * @return future of the found object
+     */
+    protected <T> CompletableFuture<T> lookupInBulkAsync(String operation, String endpoint, String fieldName, String paramName,
+                                                         String value, Class<T> type, Function<T, String> key, String label) {
+        String coalescerKey = configuration.getBaseURL() + ":" + configuration.getLoginName() + ":" + operation;
+        RequestCoalescer<String, T> coalescer = RequestCoalescer.shared(coalescerKey, MAX_CODES_PER_REQUEST,
+                configuration.getBulkReadLingerInMilliseconds());
+
+        return coalescer.submitAsync(value, batch -> {
+            List<String> values = batch.stream().map(e -> e.getItem()).distinct().collect(Collectors.toList());
+
+            return lookupAllAsync(endpoint, fieldName, paramName, values, type, key)
+                    .handle((found, e) -> {
+                        if (e == null) {
+                            forEachEntry(batch, v -> requireFound(found.get(v), label, v));
+                            return CompletableFuture.<Void>completedFuture(null);
+                        }
+                        RuntimeException cause = unwrap(e);
+                        if (!(cause instanceof InvalidAttributeValueException) || values.size() == 1) {
+                            return CompletableFuture.<Void>failedFuture(cause);
+                        }
+                        // Kintone rejects the whole request if one of the values is invalid.
+                        // Lookup them one by one not to fail the other callers.
+                        LOG.info("Failed to lookup {0} {1} in bulk, retry one by one: {2}", values.size(), fieldName, cause.getMessage());
+                        Map<String, CompletableFuture<Map<String, T>>> singles = new HashMap<>();
+                        CompletableFuture<?>[] done = batch.stream()
+                                .map(entry -> singles.computeIfAbsent(entry.getItem(),
+                                                v -> lookupAllAsync(endpoint, fieldName, paramName, Collections.singletonList(v), type, key))
+                                        .handle((single, singleError) -> {
+                                            if (singleError != null) {
+                                                entry.fail(unwrap(singleError));
+                                                return null;
+                                            }
+                                            try {
+                                                entry.complete(requireFound(single.get(entry.getItem()), label, entry.getItem()));
+                                            } catch (RuntimeException re) {
+                                                entry.fail(re);
+                                            }
+                                            return null;
+                                        }))
+                                .toArray(CompletableFuture[]::new);
+                        return CompletableFuture.allOf(done);
+                    })
+                    .thenCompose(f -> f);
+        });
+    }
 
-        try (Response response = get(userEndpoint, params)) {
-            try {
-                ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
-                if (list.users == null || list.users.size() != 1) {
-                    // Something wrong..
-                    throw new ConnectorIOException(String.format("Cannot find %s user %s", instanceName, uid.getUidValue()));
+    private <T> CompletableFuture<Map<String, T>> lookupAllAsync(String endpoint, String fieldName, String paramName,
+                                                                 List<String> values, Class<T> type, Function<T, String> key) {
+        HttpUrl url = UrlTemplate.of(endpoint).query()
+                .addIndexed(paramName, values)
+                .build();
+
+        return getAsync(url).thenApply(response -> {
+            Map<String, T> found = new HashMap<>();
+            try (Response r = response) {
+                ClassifiedError error = errorHandler.classify(r);
+                if (error.isInvalidRequest() || error.isNotFound()) {
+                    throw new InvalidAttributeValueException(String.format("Bad request when looking up %s %s: %s, response: %s",
+                            instanceName, fieldName, values, error.getBody()));
                 }
-                return list.users.get(0);
-
+                readList(r, fieldName, elementReader(type), o -> {
+                    found.put(key.apply(o), o);
+                    return true;
+                });
             } catch (IOException e) {
                 throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
             }
+            return found;
+        });
+    }
+
+    private RuntimeException unwrap(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
         }
+        return new ConnectorIOException(String.format("Failed to call %s REST API", instanceName), e);
     }
 
-    public KintoneUserModel getUser(Name name, OperationOptions options, Set<String> fetchFieldsSet) throws UnknownUidException {
-        Map<String, String> params = new HashMap<>();
-        params.put("codes", name.getNameValue());
+    private <T> T requireFound(T o, String label, String value) {
+        if (o == null) {
+            // Something wrong..
+            throw new ConnectorIOException(String.format("Cannot find %s %s %s", instanceName, label, value));
+        }
+        return o;
+    }
+
+    // Bulk write
 
-        try (Response response = get(userEndpoint, params)) {
+    protected <T, R> RequestCoalescer<T, R> coalescer(String operation) {
+        // Share the coalescer between the connector instances for the same kintone account
+        String key = configuration.getBaseURL() + ":" + configuration.getLoginName() + ":" + operation;
+        return RequestCoalescer.shared(key, configuration.getBulkWriteMaxSize(), configuration.getBulkWriteLingerInMilliseconds());
+    }
+
+    /**
+     * Submit the write to the bulk write coalescer without blocking the caller.
+     * The batch call applies the writes with the blocking calls (e.g. the renames in order),
+     * so it runs on the worker thread, one per batch.
+     *
+     * @param operation
+     * @param item
+     * @param call
+     * @return future of the result for the item
+     */
+    private <T, R> CompletableFuture<R> submitBulkWrite(String operation, T item, Consumer<List<RequestCoalescer.Entry<T, R>>> call) {
+        return this.<T, R>coalescer(operation).submitAsync(item,
+                batch -> CompletableFuture.runAsync(() -> call.accept(batch), Workers.executor()));
+    }
+
+    private static <T, R> void forEachEntry(List<RequestCoalescer.Entry<T, R>> batch, Function<T, R> call) {
+        for (RequestCoalescer.Entry<T, R> entry : batch) {
             try {
-                ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
-                if (list.users == null || list.users.size() != 1) {
-                    // Something wrong..
-                    throw new ConnectorIOException(String.format("Cannot find %s user %s", instanceName, name.getNameValue()));
-                }
-                return list.users.get(0);
+                entry.complete(call.apply(entry.getItem()));
+            } catch (RuntimeException e) {
+                entry.fail(e);
+            }
+        }
+    }
+
+    /**
+     * Resolve the id of the created object.
+     * The lookups for the objects created concurrently are coalesced into one request (up to {@link #MAX_CODES_PER_REQUEST}).
+     * Without the bulk write, the lookups aren't delayed, so only the lookups submitted before the flush starts
+     * are coalesced.
+     *
+     * @param operation
+     * @param endpoint
+     * @param fieldName
+     * @param code
+     * @return
+     */
+    protected CompletableFuture<String> resolveCreatedIdAsync(String operation, String endpoint, String fieldName, String code) {
+        String key = configuration.getBaseURL() + ":" + configuration.getLoginName() + ":" + operation;
+        long lingerMillis = configuration.isBulkWriteEnabled() ? configuration.getBulkWriteLingerInMilliseconds() : 0;
+        RequestCoalescer<String, String> coalescer = RequestCoalescer.shared(key, MAX_CODES_PER_REQUEST, lingerMillis);
+
+        return coalescer.submitAsync(code, batch -> {
+            List<String> codes = batch.stream().map(e -> e.getItem()).distinct().collect(Collectors.toList());
+            return getIdsByCodesAsync(endpoint, fieldName, codes)
+                    .thenAccept(ids -> forEachEntry(batch, c -> requireCreatedId(ids, c)));
+        });
+    }
+
+    private String requireCreatedId(Map<String, String> ids, String code) {
+        String id = ids.get(code);
+        if (id == null) {
+            // Something wrong..
+            throw new ConnectorIOException(String.format("Cannot find created %s object %s", instanceName, code));
+        }
+        return id;
+    }
+
+    /**
+     * Fetch only the ids of the objects by the codes with one API call.
+     *
+     * @param endpoint
+     * @param fieldName
+     * @param codes up to {@link #MAX_CODES_PER_REQUEST}
+     * @return ids of the objects, key is the code
+     */
+    protected Map<String, String> getIdsByCodes(String endpoint, String fieldName, List<String> codes) {
+        return await(getIdsByCodesAsync(endpoint, fieldName, codes));
+    }
+
+    protected CompletableFuture<Map<String, String>> getIdsByCodesAsync(String endpoint, String fieldName, List<String> codes) {
+        Map<String, String> ids = new HashMap<>();
+        return lookupIdCodesAsync(endpoint, fieldName, "codes", codes, o -> ids.put(o.code, o.id))
+                .thenApply(v -> ids);
+    }
+
+    /**
+     * Fetch only the codes of the objects by the ids with one API call.
+     *
+     * @param endpoint
+     * @param fieldName
+     * @param ids up to {@link #MAX_CODES_PER_REQUEST}
+     * @return codes of the objects, key is the id
+     */
+    protected Map<String, String> getCodesByIds(String endpoint, String fieldName, List<String> ids) {
+        Map<String, String> codes = new HashMap<>();
+        await(lookupIdCodesAsync(endpoint, fieldName, "ids", ids, o -> codes.put(o.id, o.code)));
+        return codes;
+    }
+
+    private CompletableFuture<Void> lookupIdCodesAsync(String endpoint, String fieldName, String paramName, List<String> values,
+                                                       Consumer<IdCode> consumer) {
+        HttpUrl url = UrlTemplate.of(endpoint).query()
+                .addIndexed(paramName, values)
+                .build();
+
+        return getAsync(url).thenAccept(response -> {
+            try (Response r = response) {
+                readList(r, fieldName, elementReader(IdCode.class), o -> {
+                    consumer.accept(o);
+                    return true;
+                });
 
             } catch (IOException e) {
                 throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
             }
+        });
+    }
+
+    /**
+     * Delete the objects coalesced by the bulk write with one request.
+     * The codes of the UIDs without the name hint are resolved at once.
+     * Kintone rejects the whole request if one of the objects can't be deleted.
+     * In that case, delete them one by one to report the error to each caller.
+     *
+     * @param objectClass
+     * @param endpoint
+     * @param fieldName
+     * @param batch
+     * @param single
+     */
+    protected void deleteInBulk(ObjectClass objectClass, String endpoint, String fieldName,
+                                List<RequestCoalescer.Entry<Uid, Void>> batch, Consumer<Uid> single) {
+        if (batch.size() == 1) {
+            single.accept(batch.get(0).getItem());
+            batch.get(0).complete(null);
+            return;
         }
+
+        Map<String, String> resolvedCodes = new HashMap<>();
+        List<String> missingIds = batch.stream()
+                .map(e -> e.getItem())
+                .filter(uid -> uid.getNameHint() == null)
+                .map(uid -> uid.getUidValue())
+                .distinct()
+                .collect(Collectors.toList());
+        if (!missingIds.isEmpty()) {
+            resolvedCodes.putAll(getCodesByIds(endpoint, fieldName, missingIds));
+        }
+
+        List<RequestCoalescer.Entry<Uid, Void>> targets = new ArrayList<>(batch.size());
+        Set<String> codes = new LinkedHashSet<>();
+        for (RequestCoalescer.Entry<Uid, Void> entry : batch) {
+            Uid uid = entry.getItem();
+            String code = uid.getNameHint() != null ? uid.getNameHintValue() : resolvedCodes.get(uid.getUidValue());
+            if (code == null) {
+                entry.fail(new UnknownUidException(uid, objectClass));
+                continue;
+            }
+            targets.add(entry);
+            codes.add(code);
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        CodesBody<String> body = new CodesBody<>();
+        body.codes = new ArrayList<>(codes);
+
+        Uid batchUid = new Uid(targets.stream().map(e -> e.getItem().getUidValue()).collect(Collectors.joining(",")));
+        try {
+            callDelete(objectClass, endpoint, batchUid, body);
+        } catch (InvalidAttributeValueException e) {
+            // Includes UnknownUidException
+            LOG.info("Failed to delete {0} {1} in bulk, retry one by one: {2}", targets.size(), fieldName, e.getMessage());
+            forEachEntry(targets, uid -> {
+                single.accept(uid);
+                return null;
+            });
+            return;
+        }
+
+        targets.forEach(e -> e.complete(null));
     }
 
-    public void updateUser(Uid uid, KintoneUserModel update) {
-        ListBody body = new ListBody();
-        body.users = new ArrayList<>(1);
-        body.users.add(update);
+    static class RenameRequest {
+        final Uid uid;
+        final String newCode;
 
-        callUpdate(USER_OBJECT_CLASS, userEndpoint, uid, body);
+        RenameRequest(Uid uid, String newCode) {
+            this.uid = uid;
+            this.newCode = newCode;
+        }
     }
 
-    public void renameUser(Uid uid, String newCode) {
+    protected void renameSingle(ObjectClass objectClass, String endpoint, Uid uid, String currentCode, String newCode) {
+        await(renameSingleAsync(objectClass, endpoint, uid, currentCode, newCode));
+    }
+
+    protected CompletableFuture<Void> renameSingleAsync(ObjectClass objectClass, String endpoint, Uid uid, String currentCode, String newCode) {
         CodesBody<RenameCode> codes = new CodesBody<>();
 
         RenameCode renameCode = new RenameCode();
-        renameCode.currentCode = uid.getNameHintValue();
+        renameCode.currentCode = currentCode;
         renameCode.newCode = newCode;
 
         codes.codes = new ArrayList<>(1);
         codes.codes.add(renameCode);
 
-        callUpdate(USER_OBJECT_CLASS, userRenameEndpoint, uid, codes);
+        return callUpdateAsync(objectClass, endpoint, uid, codes);
+    }
+
+    /**
+     * Rename the objects coalesced by the bulk write.
+     * The renames are ordered by {@link RenamePlanner} and each phase is applied with one request.
+     * When kintone rejects the phase, the renames in the phase are applied one by one to report the error to each caller.
+     * The renames which touch the same code twice in the batch are applied one by one after the others.
+     * The renames in a cycle (e.g. swap) are one unit: when one of them fails, the applied steps of the cycle are undone
+     * in reverse order and all renames in the cycle fail.
+     *
+     * @param objectClass
+     * @param endpoint
+     * @param batch
+     */
+    protected void renameInBulk(ObjectClass objectClass, String endpoint, List<RequestCoalescer.Entry<RenameRequest, Void>> batch) {
+        List<RequestCoalescer.Entry<RenameRequest, Void>> planned = new ArrayList<>(batch.size());
+        List<RequestCoalescer.Entry<RenameRequest, Void>> conflicted = new ArrayList<>();
+        Set<String> currentCodes = new HashSet<>();
+        Set<String> newCodes = new HashSet<>();
+        for (RequestCoalescer.Entry<RenameRequest, Void> entry : batch) {
+            RenameRequest rename = entry.getItem();
+            if (currentCodes.add(rename.uid.getNameHintValue()) & newCodes.add(rename.newCode)) {
+                planned.add(entry);
+            } else {
+                conflicted.add(entry);
+            }
+        }
+
+        List<List<RenamePlanner.Step>> phases = RenamePlanner.plan(
+                planned.stream().map(e -> e.getItem().uid.getNameHintValue()).collect(Collectors.toList()),
+                planned.stream().map(e -> e.getItem().newCode).collect(Collectors.toList()));
+
+        // Steps applied for each cycle, latest first, to undo them when a step of the cycle fails
+        Map<Integer, Deque<RenamePlanner.Step>> applied = new HashMap<>();
+        try {
+            for (List<RenamePlanner.Step> phase : phases) {
+                List<RenamePlanner.Step> steps = phase.stream()
+                        .filter(step -> !planned.get(step.index).isDone())
+                        .collect(Collectors.toList());
+                if (steps.isEmpty()) {
+                    continue;
+                }
+
+                if (steps.size() > 1) {
+                    CodesBody<RenameCode> codes = new CodesBody<>();
+                    codes.codes = steps.stream().map(step -> {
+                        RenameCode renameCode = new RenameCode();
+                        renameCode.currentCode = step.currentCode;
+                        renameCode.newCode = step.newCode;
+                        return renameCode;
+                    }).collect(Collectors.toList());
+
+                    Uid batchUid = new Uid(steps.stream()
+                            .map(step -> planned.get(step.index).getItem().uid.getUidValue())
+                            .collect(Collectors.joining(",")));
+                    try {
+                        callUpdate(objectClass, endpoint, batchUid, codes);
+                        steps.forEach(step -> recordApplied(applied, step));
+                        continue;
+                    } catch (InvalidAttributeValueException | AlreadyExistsException e) {
+                        LOG.info("Failed to rename {0} {1} in bulk, retry one by one: {2}",
+                                steps.size(), objectClass.getObjectClassValue(), e.getMessage());
+                    }
+                }
+
+                for (RenamePlanner.Step step : steps) {
+                    RequestCoalescer.Entry<RenameRequest, Void> entry = planned.get(step.index);
+                    try {
+                        renameSingle(objectClass, endpoint, entry.getItem().uid, step.currentCode, step.newCode);
+                        recordApplied(applied, step);
+                    } catch (RuntimeException e) {
+                        if (!step.inCycle()) {
+                            entry.fail(e);
+                            continue;
+                        }
+                        // The renames in the cycle succeed or fail together
+                        undoSteps(objectClass, endpoint, planned, applied.remove(step.cycle));
+                        failCycle(objectClass, planned, phases, step, e);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // Don't leave the temporary codes
+            applied.values().forEach(steps -> undoSteps(objectClass, endpoint, planned, steps));
+            throw e;
+        }
+
+        forEachEntry(conflicted, rename -> {
+            renameSingle(objectClass, endpoint, rename.uid, rename.uid.getNameHintValue(), rename.newCode);
+            return null;
+        });
+
+        planned.stream().filter(e -> !e.isDone()).forEach(e -> e.complete(null));
+    }
+
+    private static void recordApplied(Map<Integer, Deque<RenamePlanner.Step>> applied, RenamePlanner.Step step) {
+        if (step.inCycle()) {
+            applied.computeIfAbsent(step.cycle, k -> new ArrayDeque<>()).push(step);
+        }
+    }
+
+    private void undoSteps(ObjectClass objectClass, String endpoint, List<RequestCoalescer.Entry<RenameRequest, Void>> planned,
+                           Deque<RenamePlanner.Step> steps) {
+        if (steps == null) {
+            return;
+        }
+        // In reverse order, the latest step frees the code for the previous one
+        for (RenamePlanner.Step step : steps) {
+            Uid uid = planned.get(step.index).getItem().uid;
+            try {
+                renameSingle(objectClass, endpoint, uid, step.newCode, step.currentCode);
+            } catch (RuntimeException e) {
+                LOG.error(e, "Failed to undo renaming {0} {1} from {2} to {3}",
+                        objectClass.getObjectClassValue(), uid.getUidValue(), step.currentCode, step.newCode);
+            }
+        }
+    }
+
+    private void failCycle(ObjectClass objectClass, List<RequestCoalescer.Entry<RenameRequest, Void>> planned,
+                           List<List<RenamePlanner.Step>> phases, RenamePlanner.Step failed, RuntimeException e) {
+        planned.get(failed.index).fail(e);
+        phases.stream()
+                .flatMap(phase -> phase.stream())
+                .filter(step -> step.cycle == failed.cycle && !planned.get(step.index).isDone())
+                .forEach(step -> planned.get(step.index).fail(new ConnectorException(
+                        String.format("Rename of %s %s was undone because another rename in the same cycle failed: %s",
+                                objectClass.getObjectClassValue(), planned.get(step.index).getItem().uid.getUidValue(), e.getMessage()), e)));
+    }
+
+    // User
+
+    public Uid createUser(KintoneUserModel newUser) throws AlreadyExistsException {
+        return await(createUserAsync(newUser));
+    }
+
+    public CompletableFuture<Uid> createUserAsync(KintoneUserModel newUser) {
+        if (configuration.isBulkWriteEnabled()) {
+            return submitBulkWrite("createUser", newUser, this::createUsers);
+        }
+        return createSingleUserAsync(newUser);
+    }
+
+    /**
+     * Create the users coalesced by the bulk write with one request.
+     * Kintone rejects the whole request if one of the users is invalid.
+     * In that case, create them one by one to report the error to each caller.
+     *
+     * @param batch
+     */
+    protected void createUsers(List<RequestCoalescer.Entry<KintoneUserModel, Uid>> batch) {
+        if (batch.size() == 1) {
+            batch.get(0).complete(createSingleUser(batch.get(0).getItem()));
+            return;
+        }
+
+        ListBody body = new ListBody();
+        body.users = batch.stream().map(e -> e.getItem()).collect(Collectors.toList());
+        String codes = body.users.stream().map(u -> u.code).collect(Collectors.joining(","));
+
+        try {
+            callCreate(USER_OBJECT_CLASS, userEndpoint, body, codes);
+        } catch (AlreadyExistsException | InvalidAttributeValueException e) {
+            LOG.info("Failed to create {0} users in bulk, retry one by one: {1}", batch.size(), e.getMessage());
+            forEachEntry(batch, this::createSingleUser);
+            return;
+        }
+
+        // We need to fetch the created objects for getting the generated id, fetch them at once
+        Map<String, String> ids = getIdsByCodes(userEndpoint, "users",
+                body.users.stream().map(u -> u.code).collect(Collectors.toList()));
+        forEachEntry(batch, u -> new Uid(requireCreatedId(ids, u.code), u.code));
+    }
+
+    private Uid createSingleUser(KintoneUserModel newUser) throws AlreadyExistsException {
+        return await(createSingleUserAsync(newUser));
+    }
+
+    private CompletableFuture<Uid> createSingleUserAsync(KintoneUserModel newUser) {
+        ListBody body = new ListBody();
+        body.users = new ArrayList<>(1);
+        body.users.add(newUser);
+
+        return callCreateAsync(USER_OBJECT_CLASS, userEndpoint, body, newUser.code)
+                // We need to fetch the created object for getting the generated id
+                .thenCompose(v -> resolveCreatedIdAsync("resolveUserId", userEndpoint, "users", newUser.code))
+                .thenApply(id -> new Uid(id, newUser.code));
+    }
+
+    public KintoneUserModel getUser(Uid uid, OperationOptions options, Set<String> fetchFieldsSet) throws UnknownUidException {
+        return await(getUserAsync(uid, fetchFieldsSet));
+    }
+
+    public KintoneUserModel getUser(Name name, OperationOptions options, Set<String> fetchFieldsSet) throws UnknownUidException {
+        return await(getUserAsync(name, fetchFieldsSet));
+    }
+
+    public CompletableFuture<KintoneUserModel> getUserAsync(Uid uid, Set<String> fetchFieldsSet) {
+        if (configuration.isBulkReadEnabled()) {
+            return lookupInBulkAsync("getUserById", userEndpoint, "users", "ids", uid.getUidValue(),
+                    KintoneUserModel.class, o -> o.id, "user");
+        }
+
+        HttpUrl url = UrlTemplate.of(userEndpoint).query()
+                .add("ids", uid.getUidValue())
+                .build();
+
+        return getAsync(url)
+                .thenApply(response -> readUser(response, fetchFieldsSet, uid.getUidValue()));
+    }
+
+    public CompletableFuture<KintoneUserModel> getUserAsync(Name name, Set<String> fetchFieldsSet) {
+        if (configuration.isBulkReadEnabled()) {
+            return lookupInBulkAsync("getUserByCode", userEndpoint, "users", "codes", name.getNameValue(),
+                    KintoneUserModel.class, o -> o.code, "user");
+        }
+
+        HttpUrl url = UrlTemplate.of(userEndpoint).query()
+                .add("codes", name.getNameValue())
+                .build();
+
+        return getAsync(url)
+                .thenApply(response -> readUser(response, fetchFieldsSet, name.getNameValue()));
+    }
+
+    private KintoneUserModel readUser(Response response, Set<String> fetchFieldsSet, String key) {
+        try (Response r = response) {
+            List<KintoneUserModel> users = new ArrayList<>(1);
+            readList(r, "users", userReader(fetchFieldsSet), users::add);
+            if (users.size() != 1) {
+                // Something wrong..
+                throw new ConnectorIOException(String.format("Cannot find %s user %s", instanceName, key));
+            }
+            return users.get(0);
+
+        } catch (IOException e) {
+            throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
+        }
+    }
+
+    /**
+     * Create the decoder of the user which skips the fields not requested.
+     * When the fields aren't specified (e.g. fetching for the update), all fields are decoded.
+     *
+     * @param fetchFieldsSet
+     * @return
+     */
+    protected ElementReader<KintoneUserModel> userReader(Set<String> fetchFieldsSet) {
+        if (fetchFieldsSet == null) {
+            return elementReader(KintoneUserModel.class);
+        }
+        return new KintoneUserReader(fetchFieldsSet);
+    }
+
+    public void updateUser(Uid uid, KintoneUserModel update) {
+        await(updateUserAsync(uid, update));
+    }
+
+    public CompletableFuture<Void> updateUserAsync(Uid uid, KintoneUserModel update) {
+        ListBody body = new ListBody();
+        body.users = new ArrayList<>(1);
+        body.users.add(update);
+
+        return callUpdateAsync(USER_OBJECT_CLASS, userEndpoint, uid, body);
+    }
+
+    public void renameUser(Uid uid, String newCode) {
+        await(renameUserAsync(uid, newCode));
+    }
+
+    public CompletableFuture<Void> renameUserAsync(Uid uid, String newCode) {
+        if (configuration.isBulkWriteEnabled()) {
+            return this.<RenameRequest, Void>submitBulkWrite("renameUser", new RenameRequest(uid, newCode),
+                    batch -> renameInBulk(USER_OBJECT_CLASS, userRenameEndpoint, batch));
+        }
+        return renameSingleAsync(USER_OBJECT_CLASS, userRenameEndpoint, uid, uid.getNameHintValue(), newCode);
     }
 
     public void deleteUser(Uid uid) {
-        Uid resolvedUid = resolveUserCode(uid);
+        await(deleteUserAsync(uid));
+    }
 
-        CodesBody<String> codes = new CodesBody<>();
-        codes.codes = new ArrayList<>(1);
-        codes.codes.add(resolvedUid.getNameHintValue());
+    public CompletableFuture<Void> deleteUserAsync(Uid uid) {
+        if (configuration.isBulkWriteEnabled()) {
+            return this.<Uid, Void>submitBulkWrite("deleteUser", uid,
+                    batch -> deleteInBulk(USER_OBJECT_CLASS, userEndpoint, "users", batch, this::deleteSingleUser));
+        }
+        return deleteSingleUserAsync(uid);
+    }
+
+    private void deleteSingleUser(Uid uid) {
+        await(deleteSingleUserAsync(uid));
+    }
+
+    private CompletableFuture<Void> deleteSingleUserAsync(Uid uid) {
+        return resolveUserCodeAsync(uid).thenCompose(resolvedUid -> {
+            CodesBody<String> codes = new CodesBody<>();
+            codes.codes = new ArrayList<>(1);
+            codes.codes.add(resolvedUid.getNameHintValue());
 
-        callDelete(USER_OBJECT_CLASS, userEndpoint, uid, codes);
+            return callDeleteAsync(USER_OBJECT_CLASS, userEndpoint, uid, codes);
+        });
     }
 
+    /**
+     * Resolve the current code of the user for the write requests which specify the user by the code.
+     * The code is always fetched from kintone because it may be changed outside the connector
+     * and another user may take the old code.
+     *
+     * @param uid
+     * @return
+     */
     protected Uid resolveUserCode(Uid uid) {
+        return await(resolveUserCodeAsync(uid));
+    }
+
+    protected CompletableFuture<Uid> resolveUserCodeAsync(Uid uid) {
         if (uid.getNameHint() != null) {
-            return uid;
-        } else {
-            KintoneUserModel user = getUser(uid, null, null);
-            return new Uid(uid.getUidValue(), user.code);
+            return CompletableFuture.completedFuture(uid);
         }
+        return getUserAsync(uid, null)
+                .thenApply(user -> new Uid(uid.getUidValue(), user.code));
     }
 
     public int getUsers(QueryHandler<KintoneUserModel> handler, OperationOptions options, Set<String> fetchFieldsSet, int pageSize, int pageOffset) {
+        ElementReader<KintoneUserModel> reader = userReader(fetchFieldsSet);
+
         // ConnId starts from 1, 0 means no offset (requested all data)
         if (pageOffset < 1) {
-            return getAll(handler, pageSize, (start, size) -> {
-                Map<String, String> params = new HashMap<>();
-                params.put("offset", String.valueOf(start));
-                params.put("size", String.valueOf(size));
-
-                try (Response response = get(userEndpoint, params)) {
-                    ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
-                    return list.users;
-
-                } catch (IOException e) {
-                    throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
-                }
-            });
+            return getAll(handler, pageSize, configuration.getQueryConcurrency(), (start, size) -> {
+                HttpUrl url = UrlTemplate.of(userEndpoint).query()
+                        .add("offset", start)
+                        .add("size", size)
+                        .build();
+
+                return getAsync(url);
+            }, (response, h) -> readList(response, "users", reader, h));
         }
 
         // Pagination
         // Kintone starts from 0
         int start = pageOffset - 1;
 
-        Map<String, String> params = new HashMap<>();
-        params.put("offset", String.valueOf(start));
-        params.put("size", String.valueOf(pageSize));
+        HttpUrl url = UrlTemplate.of(userEndpoint).query()
+                .add("offset", start)
+                .add("size", pageSize)
+                .build();
 
-        try (Response response = get(userEndpoint, params)) {
-            ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
-            for (KintoneUserModel user : list.users) {
-                if (!handler.handle(user)) {
-                    break;
-                }
-            }
-            return list.users.size();
+        try (Response response = get(url)) {
+            return readList(response, "users", reader, handler);
 
         } catch (IOException e) {
             throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
@@ -427,18 +1064,49 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
     }
 
     public Stream<String> getServicesForUser(String code, int pageSize) {
-        Map<String, String> params = new HashMap<>();
-        params.put("codes", code);
-
-        try (Response response = get(userServicesEndpoint, params)) {
-            UserServicesBody body = MAPPER.readValue(response.body().byteStream(), UserServicesBody.class);
-            Optional<UserServiceBody> services = body.users.stream()
-                    .filter(u -> u.code.equals(code))
-                    .findFirst();
-            if (services.isPresent()) {
-                return services.get().services.stream();
+        return await(getServicesForUserAsync(code)).stream();
+    }
+
+    public CompletableFuture<List<String>> getServicesForUserAsync(String code) {
+        HttpUrl url = UrlTemplate.of(userServicesEndpoint).query()
+                .add("codes", code)
+                .build();
+
+        return getAsync(url).thenApply(response -> {
+            try (Response r = response) {
+                UserServicesBody body = json.readerFor(UserServicesBody.class).readValue(r.body().byteStream());
+                Optional<UserServiceBody> services = body.users.stream()
+                        .filter(u -> u.code.equals(code))
+                        .findFirst();
+                if (services.isPresent()) {
+                    return services.get().services;
+                }
+                return Collections.emptyList();
+
+            } catch (IOException e) {
+                throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
             }
-            return Stream.empty();
+        });
+    }
+
+    /**
+     * Fetch the services of the users with one API call.
+     *
+     * @param codes user codes (up to {@link #MAX_CODES_PER_REQUEST})
+     * @return services of the users, key is the user code
+     */
+    public Map<String, List<String>> getServicesForUsers(List<String> codes) {
+        HttpUrl url = UrlTemplate.of(userServicesEndpoint).query()
+                .addIndexed("codes", codes)
+                .build();
+
+        try (Response response = get(url)) {
+            UserServicesBody body = json.readerFor(UserServicesBody.class).readValue(response.body().byteStream());
+            Map<String, List<String>> services = new HashMap<>();
+            for (UserServiceBody user : body.users) {
+                services.put(user.code, user.services);
+            }
+            return services;
 
         } catch (IOException e) {
             throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
@@ -464,22 +1132,83 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
     }
 
     public Stream<String> getOrganizationsForUser(String code, int pageSize) {
-        Map<String, String> params = new HashMap<>();
-        params.put("code", code);
-
-        try (Response response = get(userOrganizationsEndpoint, params)) {
-            UserOrganizationsBody body = MAPPER.readValue(response.body().byteStream(), UserOrganizationsBody.class);
-            return body.organizationTitles.stream()
-                    .map(o -> {
-                        if (o.title == null) {
-                            return o.organization.code;
-                        }
-                        return o.organization.code + configuration.getOrganizationTitleDelimiter() + o.title.code;
-                    });
+        return await(getOrganizationsForUserAsync(code)).stream();
+    }
 
-        } catch (IOException e) {
-            throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
+    public CompletableFuture<List<String>> getOrganizationsForUserAsync(String code) {
+        HttpUrl url = UrlTemplate.of(userOrganizationsEndpoint).query()
+                .add("code", code)
+                .build();
+
+        return getAsync(url).thenApply(response -> {
+            try (Response r = response) {
+                UserOrganizationsBody body = json.readerFor(UserOrganizationsBody.class).readValue(r.body().byteStream());
+                return body.organizationTitles.stream()
+                        .map(o -> {
+                            if (o.title == null) {
+                                return o.organization.code;
+                            }
+                            return o.organization.code + configuration.getOrganizationTitleDelimiter() + o.title.code;
+                        })
+                        .collect(Collectors.toList());
+
+            } catch (IOException e) {
+                throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
+            }
+        });
+    }
+
+    /**
+     * Build the index of the organizations for all users by walking all organizations once.
+     * It's used for full scan of the users instead of fetching the organizations per user.
+     * The ignored organizations are excluded.
+     * The members of up to the query concurrency organizations are fetched at the same time.
+     *
+     * @param pageSize
+     * @return organizations of the users (with the title if exists), key is the user code
+     */
+    public Map<String, List<String>> getOrganizationsIndex(int pageSize) {
+        List<String> orgCodes = new ArrayList<>();
+        getOrganizations(o -> {
+            // Same rule as the organizations fetched per user
+            if (!configuration.isIgnoredOrganization(o.code)) {
+                orgCodes.add(o.code);
+            }
+            return true;
+        }, null, null, pageSize, 0);
+
+        ElementReader<OrganizationUserBody> reader = elementReader(OrganizationUserBody.class);
+        int concurrency = configuration.getQueryConcurrency();
+        // Fan out the organizations rather than the pages of each one, most of them have only one page of the members
+        int pageConcurrency = orgCodes.size() > 1 ? 1 : concurrency;
+
+        List<Map<String, List<String>>> members = mapConcurrently(orgCodes, concurrency, orgCode -> {
+            Map<String, List<String>> orgMembers = new LinkedHashMap<>();
+            // Share the same value instance between the users
+            Map<String, String> values = new HashMap<>();
+
+            getMembers(organizationUsersEndpoint, orgCode, "userTitles", reader, (OrganizationUserBody u) -> {
+                String value = orgCode;
+                if (u.title != null) {
+                    value = values.computeIfAbsent(u.title.code,
+                            t -> orgCode + configuration.getOrganizationTitleDelimiter() + t);
+                }
+                orgMembers.computeIfAbsent(u.user.code, k -> new ArrayList<>(1)).add(value);
+                return true;
+            }, pageSize, pageConcurrency);
+
+            return orgMembers;
+        });
+
+        // Merge in the order of the organizations regardless of which walk finished first
+        Map<String, List<String>> index = new HashMap<>();
+        for (Map<String, List<String>> orgMembers : members) {
+            orgMembers.forEach((user, values) -> index.computeIfAbsent(user, k -> new ArrayList<>(1)).addAll(values));
         }
+
+        LOG.ok("Built the organizations index of {0} users from {1} organizations", index.size(), orgCodes.size());
+
+        return index;
     }
 
     public void updateOrganizationsForUser(Uid uid, List<String> organizations) {
@@ -523,136 +1252,218 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
     }
 
     public Stream<String> getGroupsForUser(String code, int pageSize) {
-        Map<String, String> params = new HashMap<>();
-        params.put("code", code);
+        return await(getGroupsForUserAsync(code)).stream();
+    }
 
-        try (Response response = get(userGroupsEndpoint, params)) {
-            UserGroupsBody body = MAPPER.readValue(response.body().byteStream(), UserGroupsBody.class);
-            return body.groups.stream()
-                    .map(o -> o.code);
+    public CompletableFuture<List<String>> getGroupsForUserAsync(String code) {
+        HttpUrl url = UrlTemplate.of(userGroupsEndpoint).query()
+                .add("code", code)
+                .build();
 
-        } catch (IOException e) {
-            throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
+        return getAsync(url).thenApply(response -> {
+            try (Response r = response) {
+                UserGroupsBody body = json.readerFor(UserGroupsBody.class).readValue(r.body().byteStream());
+                return body.groups.stream()
+                        .map(o -> o.code)
+                        .collect(Collectors.toList());
+
+            } catch (IOException e) {
+                throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
+            }
+        });
+    }
+
+    /**
+     * Build the index of the groups for all users by walking all groups once.
+     * It's used for full scan of the users instead of fetching the groups per user.
+     * The ignored groups and "everyone" group are excluded.
+     * The members of up to the query concurrency groups are fetched at the same time.
+     *
+     * @param pageSize
+     * @return groups of the users, key is the user code
+     */
+    public Map<String, List<String>> getGroupsIndex(int pageSize) {
+        Set<String> ignoreGroups = configuration.getIgnoreGroupSet();
+
+        List<String> groupCodes = new ArrayList<>();
+        getGroups(g -> {
+            // "everyone" group contains all users, no need to walk it
+            if (!ignoreGroups.contains(g.code) && !g.code.equals("everyone")) {
+                groupCodes.add(g.code);
+            }
+            return true;
+        }, null, null, pageSize, 0);
+
+        ElementReader<IdCode> reader = elementReader(IdCode.class);
+        int concurrency = configuration.getQueryConcurrency();
+        // Same as the organizations index
+        int pageConcurrency = groupCodes.size() > 1 ? 1 : concurrency;
+
+        List<List<String>> members = mapConcurrently(groupCodes, concurrency, groupCode -> {
+            List<String> groupMembers = new ArrayList<>();
+            getMembers(groupUsersEndpoint, groupCode, "users", reader, (IdCode u) -> {
+                groupMembers.add(u.code);
+                return true;
+            }, pageSize, pageConcurrency);
+            return groupMembers;
+        });
+
+        // Merge in the order of the groups regardless of which walk finished first
+        Map<String, List<String>> index = new HashMap<>();
+        for (int i = 0; i < groupCodes.size(); i++) {
+            String groupCode = groupCodes.get(i);
+            for (String user : members.get(i)) {
+                index.computeIfAbsent(user, k -> new ArrayList<>(1)).add(groupCode);
+            }
         }
+
+        LOG.ok("Built the groups index of {0} users from {1} groups", index.size(), groupCodes.size());
+
+        return index;
+    }
+
+    private <T> int getMembers(String endpoint, String code, String fieldName, ElementReader<T> reader,
+                               QueryHandler<T> handler, int pageSize, int concurrency) {
+        return getAll(handler, pageSize, concurrency, (start, size) -> {
+            HttpUrl url = UrlTemplate.of(endpoint).query()
+                    .add("code", code)
+                    .add("offset", start)
+                    .add("size", size)
+                    .build();
+
+            return getAsync(url);
+        }, (response, h) -> readList(response, fieldName, reader, h));
     }
 
     // Organization
 
     public Uid createOrganization(KintoneOrganizationModel newOrganization) throws AlreadyExistsException {
+        return await(createOrganizationAsync(newOrganization));
+    }
+
+    public CompletableFuture<Uid> createOrganizationAsync(KintoneOrganizationModel newOrganization) {
         ListBody body = new ListBody();
         body.organizations = new ArrayList<>(1);
         body.organizations.add(newOrganization);
 
-        callCreate(ORGANIZATION_OBJECT_CLASS, organizationEndpoint, body, newOrganization.code);
-
-        // We need to fetch the created object for getting the generated id
-        KintoneOrganizationModel created = getOrganization(new Name(newOrganization.code), null, null);
-
-        return new Uid(created.id, newOrganization.code);
+        return callCreateAsync(ORGANIZATION_OBJECT_CLASS, organizationEndpoint, body, newOrganization.code)
+                // We need to fetch the created object for getting the generated id
+                .thenCompose(v -> resolveCreatedIdAsync("resolveOrganizationId", organizationEndpoint, "organizations", newOrganization.code))
+                .thenApply(id -> new Uid(id, newOrganization.code));
     }
 
     public void updateOrganization(Uid uid, KintoneOrganizationModel update) {
+        await(updateOrganizationAsync(uid, update));
+    }
+
+    public CompletableFuture<Void> updateOrganizationAsync(Uid uid, KintoneOrganizationModel update) {
         ListBody body = new ListBody();
         body.organizations = new ArrayList<>(1);
         body.organizations.add(update);
 
-        callUpdate(ORGANIZATION_OBJECT_CLASS, organizationEndpoint, uid, body);
+        return callUpdateAsync(ORGANIZATION_OBJECT_CLASS, organizationEndpoint, uid, body);
     }
 
     public void renameOrganization(Uid uid, String newCode) {
-        CodesBody<RenameCode> codes = new CodesBody<>();
-
-        RenameCode renameCode = new RenameCode();
-        renameCode.currentCode = uid.getNameHintValue();
-        renameCode.newCode = newCode;
-
-        codes.codes = new ArrayList<>(1);
-        codes.codes.add(renameCode);
+        await(renameOrganizationAsync(uid, newCode));
+    }
 
-        callUpdate(ORGANIZATION_OBJECT_CLASS, organizationRenameEndpoint, uid, codes);
+    public CompletableFuture<Void> renameOrganizationAsync(Uid uid, String newCode) {
+        if (configuration.isBulkWriteEnabled()) {
+            return this.<RenameRequest, Void>submitBulkWrite("renameOrganization", new RenameRequest(uid, newCode),
+                    batch -> renameInBulk(ORGANIZATION_OBJECT_CLASS, organizationRenameEndpoint, batch));
+        }
+        return renameSingleAsync(ORGANIZATION_OBJECT_CLASS, organizationRenameEndpoint, uid, uid.getNameHintValue(), newCode);
     }
 
     public Uid resolveOrganizationCode(Uid uid) {
+        return await(resolveOrganizationCodeAsync(uid));
+    }
+
+    public CompletableFuture<Uid> resolveOrganizationCodeAsync(Uid uid) {
         if (uid.getNameHint() != null) {
-            return uid;
-        } else {
-            KintoneOrganizationModel organization = getOrganization(uid, null, null);
-            return new Uid(uid.getUidValue(), organization.code);
+            return CompletableFuture.completedFuture(uid);
         }
+        // Always fetch the current code, see resolveUserCode
+        return getOrganizationAsync(uid, null)
+                .thenApply(organization -> new Uid(uid.getUidValue(), organization.code));
     }
 
     public KintoneOrganizationModel getOrganization(Uid uid, OperationOptions options, Set<String> fetchFieldsSet) throws UnknownUidException {
-        Map<String, String> params = new HashMap<>();
-        params.put("ids", uid.getUidValue());
+        return await(getOrganizationAsync(uid, fetchFieldsSet));
+    }
 
-        try (Response response = get(organizationEndpoint, params)) {
-            try {
-                ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
-                if (list.organizations == null || list.organizations.size() != 1) {
-                    // Something wrong..
-                    throw new ConnectorIOException(String.format("Cannot find %s organization %s", instanceName, uid.getUidValue()));
-                }
-                return list.organizations.get(0);
+    public KintoneOrganizationModel getOrganization(Name name, OperationOptions options, Set<String> fetchFieldsSet) {
+        return await(getOrganizationAsync(name, fetchFieldsSet));
+    }
 
-            } catch (IOException e) {
-                throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
-            }
+    public CompletableFuture<KintoneOrganizationModel> getOrganizationAsync(Uid uid, Set<String> fetchFieldsSet) {
+        if (configuration.isBulkReadEnabled()) {
+            return lookupInBulkAsync("getOrganizationById", organizationEndpoint, "organizations", "ids", uid.getUidValue(),
+                    KintoneOrganizationModel.class, o -> o.id, "organization");
         }
+
+        HttpUrl url = UrlTemplate.of(organizationEndpoint).query()
+                .add("ids", uid.getUidValue())
+                .build();
+
+        return getAsync(url)
+                .thenApply(response -> readOrganization(response, uid.getUidValue()));
     }
 
-    public KintoneOrganizationModel getOrganization(Name name, OperationOptions options, Set<String> fetchFieldsSet) {
-        Map<String, String> params = new HashMap<>();
-        params.put("codes", name.getNameValue());
+    public CompletableFuture<KintoneOrganizationModel> getOrganizationAsync(Name name, Set<String> fetchFieldsSet) {
+        if (configuration.isBulkReadEnabled()) {
+            return lookupInBulkAsync("getOrganizationByCode", organizationEndpoint, "organizations", "codes", name.getNameValue(),
+                    KintoneOrganizationModel.class, o -> o.code, "organization");
+        }
 
-        try (Response response = get(organizationEndpoint, params)) {
-            try {
-                ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
-                if (list.organizations == null || list.organizations.size() != 1) {
-                    // Something wrong..
-                    throw new ConnectorIOException(String.format("Cannot find %s organization %s", instanceName, name.getNameValue()));
-                }
-                return list.organizations.get(0);
+        HttpUrl url = UrlTemplate.of(organizationEndpoint).query()
+                .add("codes", name.getNameValue())
+                .build();
 
-            } catch (IOException e) {
-                throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
+        return getAsync(url)
+                .thenApply(response -> readOrganization(response, name.getNameValue()));
+    }
+
+    private KintoneOrganizationModel readOrganization(Response response, String key) {
+        try (Response r = response) {
+            ListBody list = json.readerFor(ListBody.class).readValue(r.body().byteStream());
+            if (list.organizations == null || list.organizations.size() != 1) {
+                // Something wrong..
+                throw new ConnectorIOException(String.format("Cannot find %s organization %s", instanceName, key));
             }
+            return list.organizations.get(0);
+
+        } catch (IOException e) {
+            throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
         }
     }
 
     public int getOrganizations(QueryHandler<KintoneOrganizationModel> handler, OperationOptions options, Set<String> fetchFieldsSet, int pageSize, int pageOffset) {
+
         // ConnId starts from 1, 0 means no offset (requested all data)
         if (pageOffset < 1) {
-            return getAll(handler, pageSize, (start, size) -> {
-                Map<String, String> params = new HashMap<>();
-                params.put("offset", String.valueOf(start));
-                params.put("size", String.valueOf(size));
-
-                try (Response response = get(organizationEndpoint, params)) {
-                    ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
-                    return list.organizations;
-
-                } catch (IOException e) {
-                    throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
-                }
-            });
+            return getAll(handler, pageSize, configuration.getQueryConcurrency(), (start, size) -> {
+                HttpUrl url = UrlTemplate.of(organizationEndpoint).query()
+                        .add("offset", start)
+                        .add("size", size)
+                        .build();
+
+                return getAsync(url);
+            }, (response, h) -> readList(response, "organizations", elementReader(KintoneOrganizationModel.class), h));
         }
 
         // Pagination
         // Kintone starts from 0
         int start = pageOffset - 1;
 
-        Map<String, String> params = new HashMap<>();
-        params.put("offset", String.valueOf(start));
-        params.put("size", String.valueOf(pageSize));
+        HttpUrl url = UrlTemplate.of(organizationEndpoint).query()
+                .add("offset", start)
+                .add("size", pageSize)
+                .build();
 
-        try (Response response = get(organizationEndpoint, params)) {
-            ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
-            for (KintoneOrganizationModel org : list.organizations) {
-                if (!handler.handle(org)) {
-                    break;
-                }
-            }
-            return list.organizations.size();
+        try (Response response = get(url)) {
+            return readList(response, "organizations", elementReader(KintoneOrganizationModel.class), handler);
 
         } catch (IOException e) {
             throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
@@ -660,86 +1471,127 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
     }
 
     public void deleteOrganization(Uid uid) {
-        Uid resolvedUid = resolveOrganizationCode(uid);
+        await(deleteOrganizationAsync(uid));
+    }
 
-        CodesBody<String> codes = new CodesBody<>();
-        codes.codes = new ArrayList<>(1);
-        codes.codes.add(resolvedUid.getNameHintValue());
+    public CompletableFuture<Void> deleteOrganizationAsync(Uid uid) {
+        if (configuration.isBulkWriteEnabled()) {
+            return this.<Uid, Void>submitBulkWrite("deleteOrganization", uid,
+                    batch -> deleteInBulk(ORGANIZATION_OBJECT_CLASS, organizationEndpoint, "organizations", batch, this::deleteSingleOrganization));
+        }
+        return deleteSingleOrganizationAsync(uid);
+    }
 
-        callDelete(ORGANIZATION_OBJECT_CLASS, organizationEndpoint, uid, codes);
+    private void deleteSingleOrganization(Uid uid) {
+        await(deleteSingleOrganizationAsync(uid));
+    }
+
+    private CompletableFuture<Void> deleteSingleOrganizationAsync(Uid uid) {
+        return resolveOrganizationCodeAsync(uid).thenCompose(resolvedUid -> {
+            CodesBody<String> codes = new CodesBody<>();
+            codes.codes = new ArrayList<>(1);
+            codes.codes.add(resolvedUid.getNameHintValue());
+
+            return callDeleteAsync(ORGANIZATION_OBJECT_CLASS, organizationEndpoint, uid, codes);
+        });
     }
 
     // Group
 
     public Uid createGroup(KintoneGroupModel newGroup) throws AlreadyExistsException {
+        return await(createGroupAsync(newGroup));
+    }
+
+    public CompletableFuture<Uid> createGroupAsync(KintoneGroupModel newGroup) {
         ListBody body = new ListBody();
         body.groups = new ArrayList<>(1);
         body.groups.add(newGroup);
 
-        callCreate(GROUP_OBJECT_CLASS, groupEndpoint, body, newGroup.code);
-
-        // We need to fetch the created object for getting the generated id
-        KintoneGroupModel created = getGroup(new Name(newGroup.code), null, null);
-
-        return new Uid(created.id, newGroup.code);
+        return callCreateAsync(GROUP_OBJECT_CLASS, groupEndpoint, body, newGroup.code)
+                // We need to fetch the created object for getting the generated id
+                .thenCompose(v -> resolveCreatedIdAsync("resolveGroupId", groupEndpoint, "groups", newGroup.code))
+                .thenApply(id -> new Uid(id, newGroup.code));
     }
 
     public void updateGroup(Uid uid, KintoneGroupModel update) {
+        await(updateGroupAsync(uid, update));
+    }
+
+    public CompletableFuture<Void> updateGroupAsync(Uid uid, KintoneGroupModel update) {
         ListBody body = new ListBody();
         body.groups = new ArrayList<>(1);
         body.groups.add(update);
 
-        callUpdate(GROUP_OBJECT_CLASS, groupEndpoint, uid, body);
+        return callUpdateAsync(GROUP_OBJECT_CLASS, groupEndpoint, uid, body);
     }
 
     public void renameGroup(Uid uid, String newCode) {
-        CodesBody<RenameCode> codes = new CodesBody<>();
-
-        RenameCode renameCode = new RenameCode();
-        renameCode.currentCode = uid.getNameHintValue();
-        renameCode.newCode = newCode;
-
-        codes.codes = new ArrayList<>(1);
-        codes.codes.add(renameCode);
+        await(renameGroupAsync(uid, newCode));
+    }
 
-        callUpdate(GROUP_OBJECT_CLASS, groupRenameEndpoint, uid, codes);
+    public CompletableFuture<Void> renameGroupAsync(Uid uid, String newCode) {
+        if (configuration.isBulkWriteEnabled()) {
+            return this.<RenameRequest, Void>submitBulkWrite("renameGroup", new RenameRequest(uid, newCode),
+                    batch -> renameInBulk(GROUP_OBJECT_CLASS, groupRenameEndpoint, batch));
+        }
+        return renameSingleAsync(GROUP_OBJECT_CLASS, groupRenameEndpoint, uid, uid.getNameHintValue(), newCode);
     }
 
     protected Uid resolveGroupCode(Uid uid) {
+        return await(resolveGroupCodeAsync(uid));
+    }
+
+    protected CompletableFuture<Uid> resolveGroupCodeAsync(Uid uid) {
         if (uid.getNameHint() != null) {
-            return uid;
-        } else {
-            KintoneGroupModel group = getGroup(uid, null, null);
-            return new Uid(uid.getUidValue(), group.code);
+            return CompletableFuture.completedFuture(uid);
         }
+        // Always fetch the current code, see resolveUserCode
+        return getGroupAsync(uid, null)
+                .thenApply(group -> new Uid(uid.getUidValue(), group.code));
     }
 
     public KintoneGroupModel getGroup(Uid uid, OperationOptions options, Set<String> fetchFieldsSet) throws UnknownUidException {
-        Map<String, String> params = new HashMap<>();
-        params.put("ids", uid.getUidValue());
+        return await(getGroupAsync(uid, fetchFieldsSet));
+    }
 
-        try (Response response = get(groupEndpoint, params)) {
-            ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
-            if (list.groups == null || list.groups.size() != 1) {
-                // Something wrong..
-                throw new ConnectorIOException(String.format("Cannot find %s group %s", instanceName, uid.getUidValue()));
-            }
-            return list.groups.get(0);
+    public KintoneGroupModel getGroup(Name name, OperationOptions options, Set<String> fetchFieldsSet) {
+        return await(getGroupAsync(name, fetchFieldsSet));
+    }
 
-        } catch (IOException e) {
-            throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
+    public CompletableFuture<KintoneGroupModel> getGroupAsync(Uid uid, Set<String> fetchFieldsSet) {
+        if (configuration.isBulkReadEnabled()) {
+            return lookupInBulkAsync("getGroupById", groupEndpoint, "groups", "ids", uid.getUidValue(),
+                    KintoneGroupModel.class, o -> o.id, "group");
         }
+
+        HttpUrl url = UrlTemplate.of(groupEndpoint).query()
+                .add("ids", uid.getUidValue())
+                .build();
+
+        return getAsync(url)
+                .thenApply(response -> readGroup(response, uid.getUidValue()));
     }
 
-    public KintoneGroupModel getGroup(Name name, OperationOptions options, Set<String> fetchFieldsSet) {
-        Map<String, String> params = new HashMap<>();
-        params.put("codes", name.getNameValue());
+    public CompletableFuture<KintoneGroupModel> getGroupAsync(Name name, Set<String> fetchFieldsSet) {
+        if (configuration.isBulkReadEnabled()) {
+            return lookupInBulkAsync("getGroupByCode", groupEndpoint, "groups", "codes", name.getNameValue(),
+                    KintoneGroupModel.class, o -> o.code, "group");
+        }
+
+        HttpUrl url = UrlTemplate.of(groupEndpoint).query()
+                .add("codes", name.getNameValue())
+                .build();
+
+        return getAsync(url)
+                .thenApply(response -> readGroup(response, name.getNameValue()));
+    }
 
-        try (Response response = get(groupEndpoint, params)) {
-            ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
+    private KintoneGroupModel readGroup(Response response, String key) {
+        try (Response r = response) {
+            ListBody list = json.readerFor(ListBody.class).readValue(r.body().byteStream());
             if (list.groups == null || list.groups.size() != 1) {
                 // Something wrong..
-                throw new ConnectorIOException(String.format("Cannot find %s group %s", instanceName, name.getNameValue()));
+                throw new ConnectorIOException(String.format("Cannot find %s group %s", instanceName, key));
             }
             return list.groups.get(0);
 
@@ -749,39 +1601,30 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
     }
 
     public int getGroups(QueryHandler<KintoneGroupModel> handler, OperationOptions options, Set<String> fetchFieldsSet, int pageSize, int pageOffset) {
+
         // ConnId starts from 1, 0 means no offset (requested all data)
         if (pageOffset < 1) {
-            return getAll(handler, pageSize, (start, size) -> {
-                Map<String, String> params = new HashMap<>();
-                params.put("offset", String.valueOf(start));
-                params.put("size", String.valueOf(size));
-
-                try (Response response = get(groupEndpoint, params)) {
-                    ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
-                    return list.groups;
-
-                } catch (IOException e) {
-                    throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
-                }
-            });
+            return getAll(handler, pageSize, configuration.getQueryConcurrency(), (start, size) -> {
+                HttpUrl url = UrlTemplate.of(groupEndpoint).query()
+                        .add("offset", start)
+                        .add("size", size)
+                        .build();
+
+                return getAsync(url);
+            }, (response, h) -> readList(response, "groups", elementReader(KintoneGroupModel.class), h));
         }
 
         // Pagination
         // Kintone starts from 0
         int start = pageOffset - 1;
 
-        Map<String, String> params = new HashMap<>();
-        params.put("offset", String.valueOf(start));
-        params.put("size", String.valueOf(pageSize));
+        HttpUrl url = UrlTemplate.of(groupEndpoint).query()
+                .add("offset", start)
+                .add("size", pageSize)
+                .build();
 
-        try (Response response = get(groupEndpoint, params)) {
-            ListBody list = MAPPER.readValue(response.body().byteStream(), ListBody.class);
-            for (KintoneGroupModel group : list.groups) {
-                if (!handler.handle(group)) {
-                    break;
-                }
-            }
-            return list.groups.size();
+        try (Response response = get(url)) {
+            return readList(response, "groups", elementReader(KintoneGroupModel.class), handler);
 
         } catch (IOException e) {
             throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
@@ -789,12 +1632,28 @@ public class KintoneRESTClient extends AbstractRESTClient<KintoneConfiguration>
     }
 
     public void deleteGroup(Uid uid) {
-        Uid resolvedUid = resolveGroupCode(uid);
+        await(deleteGroupAsync(uid));
+    }
 
-        CodesBody<String> codes = new CodesBody<>();
-        codes.codes = new ArrayList<>(1);
-        codes.codes.add(resolvedUid.getNameHintValue());
+    public CompletableFuture<Void> deleteGroupAsync(Uid uid) {
+        if (configuration.isBulkWriteEnabled()) {
+            return this.<Uid, Void>submitBulkWrite("deleteGroup", uid,
+                    batch -> deleteInBulk(GROUP_OBJECT_CLASS, groupEndpoint, "groups", batch, this::deleteSingleGroup));
+        }
+        return deleteSingleGroupAsync(uid);
+    }
+
+    private void deleteSingleGroup(Uid uid) {
+        await(deleteSingleGroupAsync(uid));
+    }
+
+    private CompletableFuture<Void> deleteSingleGroupAsync(Uid uid) {
+        return resolveGroupCodeAsync(uid).thenCompose(resolvedUid -> {
+            CodesBody<String> codes = new CodesBody<>();
+            codes.codes = new ArrayList<>(1);
+            codes.codes.add(resolvedUid.getNameHintValue());
 
-        callDelete(GROUP_OBJECT_CLASS, groupEndpoint, uid, codes);
+            return callDeleteAsync(GROUP_OBJECT_CLASS, groupEndpoint, uid, codes);
+        });
     }
 }
@@ -15,15 +15,23 @@
  */
 package jp.openstandia.connector.kintone;
 
+import jp.openstandia.connector.util.BatchQueryHandler;
 import jp.openstandia.connector.util.ObjectHandler;
+import jp.openstandia.connector.util.QueryHandler;
 import jp.openstandia.connector.util.SchemaDefinition;
 import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
 import org.identityconnectors.framework.common.objects.*;
 
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -81,7 +89,7 @@ public class KintoneUserHandler implements ObjectHandler {
                 SchemaDefinition.Types.BOOLEAN,
                 (source, dest) -> dest.valid = source,
                 (source) -> source.valid,
-                "active"
+                "valid"
         );
 
         // __PASSWORD__
@@ -243,7 +251,8 @@ public class KintoneUserHandler implements ObjectHandler {
                 (source, dest) -> dest.addServices(source),
                 (add, dest) -> dest.addServices(add),
                 (remove, dest) -> dest.removeServices(remove),
-                (source) -> filterService(configuration, client.getServicesForUser(source.code, configuration.getDefaultQueryPageSize())),
+                (source) -> filterService(configuration, source.services != null ? source.services.stream() :
+                        client.getServicesForUser(source.code, configuration.getDefaultQueryPageSize())),
                 null,
                 NOT_RETURNED_BY_DEFAULT
         );
@@ -252,7 +261,8 @@ public class KintoneUserHandler implements ObjectHandler {
                 (source, dest) -> dest.addOrganizations(source),
                 (add, dest) -> dest.addOrganizations(add),
                 (remove, dest) -> dest.removeOrganizations(remove),
-                (source) -> filterOrganization(configuration, client.getOrganizationsForUser(source.code, configuration.getDefaultQueryPageSize())),
+                (source) -> filterOrganization(configuration, source.organizations != null ? source.organizations.stream() :
+                        client.getOrganizationsForUser(source.code, configuration.getDefaultQueryPageSize())),
                 null,
                 NOT_RETURNED_BY_DEFAULT
         );
@@ -261,7 +271,8 @@ public class KintoneUserHandler implements ObjectHandler {
                 (source, dest) -> dest.addGroups(source),
                 (add, dest) -> dest.addGroups(add),
                 (remove, dest) -> dest.removeGroups(remove),
-                (source) -> filterGroups(configuration, client.getGroupsForUser(source.code, configuration.getDefaultQueryPageSize())),
+                (source) -> filterGroups(configuration, source.groups != null ? source.groups.stream() :
+                        client.getGroupsForUser(source.code, configuration.getDefaultQueryPageSize())),
                 null,
                 NOT_RETURNED_BY_DEFAULT
         );
@@ -293,8 +304,8 @@ public class KintoneUserHandler implements ObjectHandler {
     }
 
     private static Stream<String> filterOrganization(KintoneConfiguration configuration, Stream<String> organizations) {
-        Set<String> ignoreOrganizations = configuration.getIgnoreOrganizationSet();
-        return organizations.filter(g -> !ignoreOrganizations.contains(g));
+        // Same rule as the organizations index
+        return organizations.filter(o -> !configuration.isIgnoredOrganization(o));
     }
 
     private static Stream<String> filterGroups(KintoneConfiguration configuration, Stream<String> groups) {
@@ -341,7 +352,7 @@ public class KintoneUserHandler implements ObjectHandler {
 
         if (dest.hasAttributesChange()) {
             // Need to specify the current code for update
-            dest.code = uid.getNameHintValue();
+            dest.code = resolvedUid.getNameHintValue();
             client.updateUser(resolvedUid, dest);
         }
 
@@ -357,7 +368,7 @@ public class KintoneUserHandler implements ObjectHandler {
                 current.removeAll(dest.removeServices);
             }
 
-            client.updateServicesForUser(uid, current);
+            client.updateServicesForUser(resolvedUid, current);
         }
 
         // We need to fetch the current organizations
@@ -372,7 +383,7 @@ public class KintoneUserHandler implements ObjectHandler {
                 current.removeAll(dest.removeOrganizations);
             }
 
-            client.updateOrganizationsForUser(uid, current);
+            client.updateOrganizationsForUser(resolvedUid, current);
         }
 
         // We need to fetch the current groups for update
@@ -387,7 +398,7 @@ public class KintoneUserHandler implements ObjectHandler {
                 current.removeAll(dest.removeGroups);
             }
 
-            client.updateGroupsForUser(uid, current);
+            client.updateGroupsForUser(resolvedUid, current);
         }
 
         if (dest.hasCodeChange()) {
@@ -409,6 +420,7 @@ public class KintoneUserHandler implements ObjectHandler {
         KintoneUserModel user = client.getUser(uid, options, fetchFieldsSet);
 
         if (user != null) {
+            fetchAssociations(user, returnAttributesSet, allowPartialAttributeValues);
             resultsHandler.handle(toConnectorObject(schema, user, returnAttributesSet, allowPartialAttributeValues));
             return 1;
         }
@@ -422,17 +434,111 @@ public class KintoneUserHandler implements ObjectHandler {
         KintoneUserModel user = client.getUser(name, options, fetchFieldsSet);
 
         if (user != null) {
+            fetchAssociations(user, returnAttributesSet, allowPartialAttributeValues);
             resultsHandler.handle(toConnectorObject(schema, user, returnAttributesSet, allowPartialAttributeValues));
             return 1;
         }
         return 0;
     }
 
+    /**
+     * Fetch the requested associations of the user concurrently instead of one by one in the read mappings.
+     *
+     * @param user
+     * @param returnAttributesSet
+     * @param allowPartialAttributeValues
+     */
+    private void fetchAssociations(KintoneUserModel user, Set<String> returnAttributesSet, boolean allowPartialAttributeValues) {
+        if (allowPartialAttributeValues) {
+            // The associations are returned as incomplete attributes without fetching
+            return;
+        }
+        CompletableFuture<List<String>> services = fetchAsync(returnAttributesSet, "services",
+                () -> client.getServicesForUserAsync(user.code));
+        CompletableFuture<List<String>> organizations = fetchAsync(returnAttributesSet, "organizations",
+                () -> client.getOrganizationsForUserAsync(user.code));
+        CompletableFuture<List<String>> groups = fetchAsync(returnAttributesSet, "groups",
+                () -> client.getGroupsForUserAsync(user.code));
+
+        user.services = join(services);
+        user.organizations = join(organizations);
+        user.groups = join(groups);
+    }
+
+    private static CompletableFuture<List<String>> fetchAsync(Set<String> returnAttributesSet, String attrName,
+                                                              Supplier<CompletableFuture<List<String>>> fetch) {
+        if (!returnAttributesSet.contains(attrName)) {
+            return null;
+        }
+        return fetch.get();
+    }
+
+    private static List<String> join(CompletableFuture<List<String>> future) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ConnectorIOException("Failed to fetch the user associations", e.getCause());
+        }
+    }
+
     @Override
     public int getAll(ResultsHandler resultsHandler, OperationOptions options,
                       Set<String> returnAttributesSet, Set<String> fetchFieldsSet,
                       boolean allowPartialAttributeValues, int pageSize, int pageOffset) {
-        return client.getUsers((u) -> resultsHandler.handle(toConnectorObject(schema, u, returnAttributesSet, allowPartialAttributeValues)),
-                options, fetchFieldsSet, pageSize, pageOffset);
+        QueryHandler<KintoneUserModel> handler = (u) -> resultsHandler.handle(toConnectorObject(schema, u, returnAttributesSet, allowPartialAttributeValues));
+
+        // When allowed partial attribute values, the associations are returned as incomplete attributes without fetching
+        boolean resolveServices = !allowPartialAttributeValues && returnAttributesSet.contains("services");
+        // The index of the whole memberships is worth building only for full scan
+        boolean resolveOrganizations = !allowPartialAttributeValues && returnAttributesSet.contains("organizations")
+                && pageOffset < 1;
+        boolean resolveGroups = !allowPartialAttributeValues && returnAttributesSet.contains("groups")
+                && pageOffset < 1;
+
+        if (!resolveServices && !resolveOrganizations && !resolveGroups) {
+            return client.getUsers(handler, options, fetchFieldsSet, pageSize, pageOffset);
+        }
+
+        Map<String, List<String>> organizationsIndex = resolveOrganizations ?
+                client.getOrganizationsIndex(configuration.getDefaultQueryPageSize()) : null;
+        Map<String, List<String>> groupsIndex = resolveGroups ?
+                client.getGroupsIndex(configuration.getDefaultQueryPageSize()) : null;
+
+        // Resolve the associations of the users in bulk to avoid one API call per user
+        BatchQueryHandler<KintoneUserModel> batch = new BatchQueryHandler<>(handler, KintoneRESTClient.MAX_CODES_PER_REQUEST,
+                (users) -> {
+                    if (resolveServices) {
+                        resolveServices(users);
+                    }
+                    if (organizationsIndex != null) {
+                        for (KintoneUserModel user : users) {
+                            user.organizations = organizationsIndex.getOrDefault(user.code, Collections.emptyList());
+                        }
+                    }
+                    if (groupsIndex != null) {
+                        for (KintoneUserModel user : users) {
+                            user.groups = groupsIndex.getOrDefault(user.code, Collections.emptyList());
+                        }
+                    }
+                });
+        int count = client.getUsers(batch, options, fetchFieldsSet, pageSize, pageOffset);
+        batch.flush();
+
+        return count;
+    }
+
+    private void resolveServices(List<KintoneUserModel> users) {
+        List<String> codes = users.stream().map(u -> u.code).collect(Collectors.toList());
+        Map<String, List<String>> services = client.getServicesForUsers(codes);
+
+        for (KintoneUserModel user : users) {
+            user.services = services.getOrDefault(user.code, Collections.emptyList());
+        }
     }
 }
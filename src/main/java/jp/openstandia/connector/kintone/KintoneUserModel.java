@@ -56,6 +56,14 @@ public class KintoneUserModel {
     @JsonIgnore
     public String newCode;
 
+    // Associations resolved in bulk when searching (null means not resolved yet)
+    @JsonIgnore
+    public List<String> services;
+    @JsonIgnore
+    public List<String> organizations;
+    @JsonIgnore
+    public List<String> groups;
+
     @JsonIgnore
     public List<String> addServices;
     @JsonIgnore
@@ -0,0 +1,207 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jp.openstandia.connector.util.AbstractRESTClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decoder of the kintone user which only reads the requested fields.
+ * The fields which aren't requested are skipped without allocating the values.
+ * "id" and "code" are always decoded because they are needed to build the UID and the name.
+ *
+ * @author Hiroyuki Wada
+ */
+class KintoneUserReader implements AbstractRESTClient.ElementReader<KintoneUserModel> {
+
+    private static final String CUSTOM_ITEM_PREFIX = "customItem.";
+
+    private final Set<String> fetchFields;
+    private final Set<String> customItemCodes;
+
+    KintoneUserReader(Set<String> fetchFieldsSet) {
+        this.fetchFields = fetchFieldsSet;
+        this.customItemCodes = new HashSet<>();
+        for (String field : fetchFieldsSet) {
+            if (field.startsWith(CUSTOM_ITEM_PREFIX)) {
+                customItemCodes.add(field.substring(CUSTOM_ITEM_PREFIX.length()));
+            }
+        }
+    }
+
+    @Override
+    public KintoneUserModel read(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(p, "Expected the user object");
+        }
+
+        KintoneUserModel user = new KintoneUserModel();
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+
+            if (field.equals("id")) {
+                user.id = p.getValueAsString();
+                continue;
+            }
+            if (field.equals("code")) {
+                user.code = p.getValueAsString();
+                continue;
+            }
+            if (field.equals("customItemValues")) {
+                if (customItemCodes.isEmpty()) {
+                    p.skipChildren();
+                } else {
+                    readCustomItems(p, user);
+                }
+                continue;
+            }
+            if (!fetchFields.contains(field)) {
+                p.skipChildren();
+                continue;
+            }
+
+            switch (field) {
+                case "ctime":
+                    user.ctime = p.getValueAsString();
+                    break;
+                case "mtime":
+                    user.mtime = p.getValueAsString();
+                    break;
+                case "valid":
+                    user.valid = p.currentToken() == JsonToken.VALUE_NULL ? null : p.getValueAsBoolean();
+                    break;
+                case "name":
+                    user.name = p.getValueAsString();
+                    break;
+                case "surName":
+                    user.surName = p.getValueAsString();
+                    break;
+                case "givenName":
+                    user.givenName = p.getValueAsString();
+                    break;
+                case "surNameReading":
+                    user.surNameReading = p.getValueAsString();
+                    break;
+                case "givenNameReading":
+                    user.givenNameReading = p.getValueAsString();
+                    break;
+                case "localName":
+                    user.localName = p.getValueAsString();
+                    break;
+                case "localNameLocale":
+                    user.localNameLocale = p.getValueAsString();
+                    break;
+                case "timezone":
+                    user.timezone = p.getValueAsString();
+                    break;
+                case "locale":
+                    user.locale = p.getValueAsString();
+                    break;
+                case "description":
+                    user.description = p.getValueAsString();
+                    break;
+                case "phone":
+                    user.phone = p.getValueAsString();
+                    break;
+                case "mobilePhone":
+                    user.mobilePhone = p.getValueAsString();
+                    break;
+                case "extensionNumber":
+                    user.extensionNumber = p.getValueAsString();
+                    break;
+                case "email":
+                    user.email = p.getValueAsString();
+                    break;
+                case "callto":
+                    user.callto = p.getValueAsString();
+                    break;
+                case "url":
+                    user.url = p.getValueAsString();
+                    break;
+                case "employeeNumber":
+                    user.employeeNumber = p.getValueAsString();
+                    break;
+                case "birthDate":
+                    user.birthDate = p.getValueAsString();
+                    break;
+                case "joinDate":
+                    user.joinDate = p.getValueAsString();
+                    break;
+                case "primaryOrganization":
+                    user.primaryOrganization = p.getValueAsString();
+                    break;
+                case "sortOrder":
+                    user.sortOrder = readNumberOrString(p);
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+
+        return user;
+    }
+
+    private void readCustomItems(JsonParser p, KintoneUserModel user) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return;
+        }
+        user.customItemValues = new ArrayList<>(customItemCodes.size());
+
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            String code = null;
+            String value = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                p.nextToken();
+                if (field.equals("code")) {
+                    code = p.getValueAsString();
+                } else if (field.equals("value") && (code == null || customItemCodes.contains(code))) {
+                    // The code usually comes first, then we can skip the value of the unrequested item
+                    value = p.getValueAsString();
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (code != null && customItemCodes.contains(code)) {
+                KintoneUserModel.CustomItem item = new KintoneUserModel.CustomItem();
+                item.code = code;
+                item.value = value;
+                user.customItemValues.add(item);
+            }
+        }
+    }
+
+    private static Object readNumberOrString(JsonParser p) throws IOException {
+        switch (p.currentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+                return p.getIntValue();
+            default:
+                return p.getValueAsString();
+        }
+    }
+}
@@ -15,8 +15,10 @@
  */
 package jp.openstandia.connector.util;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
 import okhttp3.*;
 import okio.BufferedSource;
 import org.identityconnectors.common.logging.Log;
@@ -26,15 +28,36 @@ import org.identityconnectors.framework.common.objects.Uid;
 import org.identityconnectors.framework.spi.Configuration;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public abstract class AbstractRESTClient<C extends Configuration> {
 
     private static final Log LOG = Log.getLog(AbstractRESTClient.class);
 
-    protected static final ObjectMapper MAPPER = new ObjectMapper();
+    // GET requests in flight shared by all connector instances
+    private static final ConcurrentHashMap<FlightKey, InFlight> IN_FLIGHT = new ConcurrentHashMap<>();
+    // Bumped when a write request completes, the GET requests sent before it are no longer shared
+    private static final ConcurrentHashMap<Object, AtomicLong> WRITE_GENERATIONS = new ConcurrentHashMap<>();
 
     protected String instanceName;
     protected C configuration;
@@ -42,7 +65,15 @@ public abstract class AbstractRESTClient<C extends Configuration> {
     protected ErrorHandler errorHandler;
     protected int startOffset;
     protected int retryCount = 2;
-
+    protected RetryPolicy retryPolicy = new RetryPolicy(200, 5000, 30000);
+    protected AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(0, 0);
+    protected CircuitBreaker circuitBreaker = new CircuitBreaker(0, 0, 0, 0);
+    protected JsonCodec json = JsonCodec.standard();
+    // Pages fetched ahead of the page being handled when fetching all objects
+    protected int pageLookAhead = 1;
+    // Identical GET requests in the same scope share the response, e.g. the base URL and the login name.
+    // By default, only the requests issued by this instance are shared.
+    protected Object singleFlightScope = this;
 
     public interface ErrorHandler {
         boolean inNotAuthenticated(Response response);
@@ -56,6 +87,104 @@ public abstract class AbstractRESTClient<C extends Configuration> {
         boolean isOk(Response response);
 
         boolean isServerError(Response response);
+
+        /**
+         * Classify the response at once. The error handler which parses the error body should override it
+         * not to parse the body for each check.
+         *
+         * @param response
+         * @return
+         */
+        default ClassifiedError classify(Response response) {
+            if (isOk(response)) {
+                return ClassifiedError.OK;
+            }
+            if (inNotAuthenticated(response)) {
+                return new ClassifiedError(ClassifiedError.Category.NOT_AUTHENTICATED, null, null);
+            }
+            if (response.code() == 429) {
+                return new ClassifiedError(ClassifiedError.Category.THROTTLED, null, null);
+            }
+            if (isServerError(response)) {
+                return new ClassifiedError(ClassifiedError.Category.SERVER_ERROR, null, null);
+            }
+            if (isAlreadyExists(response)) {
+                return new ClassifiedError(ClassifiedError.Category.ALREADY_EXISTS, null, null);
+            }
+            if (isNotFound(response)) {
+                return new ClassifiedError(ClassifiedError.Category.NOT_FOUND, null, null);
+            }
+            if (isInvalidRequest(response)) {
+                return new ClassifiedError(ClassifiedError.Category.INVALID_REQUEST, null, null);
+            }
+            return new ClassifiedError(ClassifiedError.Category.UNKNOWN, null, null);
+        }
+    }
+
+    /**
+     * Result of the classification of the response, which is computed once per response.
+     */
+    public static class ClassifiedError {
+        public enum Category {
+            OK,
+            ALREADY_EXISTS,
+            NOT_FOUND,
+            INVALID_REQUEST,
+            NOT_AUTHENTICATED,
+            THROTTLED,
+            SERVER_ERROR,
+            UNKNOWN
+        }
+
+        public static final ClassifiedError OK = new ClassifiedError(Category.OK, null, null);
+
+        private final Category category;
+        private final String errorCode;
+        private final String body;
+
+        /**
+         * @param category
+         * @param errorCode error code of the resource if exists
+         * @param body      error body if it has been read for the classification
+         */
+        public ClassifiedError(Category category, String errorCode, String body) {
+            this.category = category;
+            this.errorCode = errorCode;
+            this.body = body;
+        }
+
+        public Category getCategory() {
+            return category;
+        }
+
+        public String getErrorCode() {
+            return errorCode;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public boolean isOk() {
+            return category == Category.OK;
+        }
+
+        public boolean isAlreadyExists() {
+            return category == Category.ALREADY_EXISTS;
+        }
+
+        public boolean isNotFound() {
+            return category == Category.NOT_FOUND;
+        }
+
+        /**
+         * The already exists and the not found errors are also the invalid request.
+         *
+         * @return
+         */
+        public boolean isInvalidRequest() {
+            return category == Category.INVALID_REQUEST || category == Category.ALREADY_EXISTS || category == Category.NOT_FOUND;
+        }
     }
 
     public void init(String instanceName, C configuration, OkHttpClient httpClient, ErrorHandler errorHandler, int startOffset) {
@@ -69,9 +198,10 @@ public abstract class AbstractRESTClient<C extends Configuration> {
     public abstract void test();
 
     public void close() {
+        // Don't evict the connection pool here because it's shared by other connector instances.
+        // It's closed by SharedHttpClients when the last connector instance releases it.
         LOG.info("Close {0} connection, current: {1}, idle: {2}",
                 instanceName, httpClient.connectionPool().connectionCount(), httpClient.connectionPool().idleConnectionCount());
-        httpClient.connectionPool().evictAll();
     }
 
     // Utilities
@@ -85,73 +215,124 @@ public abstract class AbstractRESTClient<C extends Configuration> {
      * @param name
      */
     protected void callCreate(ObjectClass objectClass, String url, Object target, String name) {
-        try (Response response = post(url, target)) {
-            if (errorHandler.isAlreadyExists(response)) {
+        await(callCreateAsync(objectClass, url, target, name));
+    }
+
+    /**
+     * Asynchronous version of {@link #callCreate}.
+     *
+     * @return future completed when the object is created
+     */
+    protected CompletableFuture<Void> callCreateAsync(ObjectClass objectClass, String url, Object target, String name) {
+        return checkAsync(postAsync(url, target), () -> String.format("Failed to create %s %s '%s'",
+                instanceName, objectClass.getObjectClassValue(), name), response -> {
+            ClassifiedError error = errorHandler.classify(response);
+            if (error.isAlreadyExists()) {
                 throw new AlreadyExistsException(String.format("%s %s '%s' already exists.", instanceName, objectClass.getObjectClassValue(), name));
             }
-            if (errorHandler.isInvalidRequest(response)) {
-                throw new InvalidAttributeValueException(String.format("Bad request when creating %s %s '%s': %s", instanceName, objectClass.getObjectClassValue(), name, toBody(response)));
+            if (error.isInvalidRequest()) {
+                throw new InvalidAttributeValueException(String.format("Bad request when creating %s %s '%s': %s", instanceName, objectClass.getObjectClassValue(), name, toBody(response, error)));
             }
 
-            if (!this.errorHandler.isOk(response)) {
+            if (!error.isOk()) {
                 throw new ConnectorIOException(String.format("Failed to create %s %s '%s', statusCode: %d, response: %s",
-                        instanceName, objectClass.getObjectClassValue(), name, response.code(), toBody(response)));
+                        instanceName, objectClass.getObjectClassValue(), name, response.code(), toBody(response, error)));
             }
 
             // Success
-
-        } catch (IOException e) {
-            throw new ConnectorIOException(String.format("Failed to create %s %s '%s'",
-                    instanceName, objectClass.getObjectClassValue(), name), e);
-        }
+        });
     }
 
     protected void callPatch(ObjectClass objectClass, String url, Uid uid, Object target) {
-        try (Response response = patch(url, target)) {
-            if (this.errorHandler.isNotFound(response)) {
+        await(callPatchAsync(objectClass, url, uid, target));
+    }
+
+    protected CompletableFuture<Void> callPatchAsync(ObjectClass objectClass, String url, Uid uid, Object target) {
+        return checkAsync(patchAsync(url, target), () -> String.format("Failed to patch %s %s: %s",
+                this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue()), response -> {
+            ClassifiedError error = this.errorHandler.classify(response);
+            if (error.isNotFound()) {
                 throw new UnknownUidException(uid, objectClass);
             }
 
-            if (this.errorHandler.isInvalidRequest(response)) {
+            if (error.isInvalidRequest()) {
                 throw new InvalidAttributeValueException(String.format("Bad request when updating %s %s: %s, response: %s",
-                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), toBody(response)));
+                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), toBody(response, error)));
             }
 
-            if (!this.errorHandler.isOk(response)) {
+            if (!error.isOk()) {
                 throw new ConnectorIOException(String.format("Failed to patch %s %s: %s, statusCode: %d, response: %s",
-                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), response.code(), toBody(response)));
+                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), response.code(), toBody(response, error)));
             }
 
             // Success
-
-        } catch (IOException e) {
-            throw new ConnectorIOException(String.format("Failed to patch %s %s: %s",
-                    this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue()), e);
-        }
+        });
     }
 
     protected void callUpdate(ObjectClass objectClass, String url, Uid uid, Object target) {
-        try (Response response = put(url, target)) {
-            if (this.errorHandler.isNotFound(response)) {
+        await(callUpdateAsync(objectClass, url, uid, target));
+    }
+
+    protected CompletableFuture<Void> callUpdateAsync(ObjectClass objectClass, String url, Uid uid, Object target) {
+        return checkAsync(putAsync(url, target), () -> String.format("Failed to update %s %s: %s",
+                this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue()), response -> {
+            ClassifiedError error = this.errorHandler.classify(response);
+            if (error.isNotFound()) {
                 throw new UnknownUidException(uid, objectClass);
             }
 
-            if (this.errorHandler.isInvalidRequest(response)) {
+            if (error.isInvalidRequest()) {
                 throw new InvalidAttributeValueException(String.format("Bad request when updating %s %s: %s, response: %s",
-                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), toBody(response)));
+                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), toBody(response, error)));
             }
 
-            if (!this.errorHandler.isOk(response)) {
+            if (!error.isOk()) {
                 throw new ConnectorIOException(String.format("Failed to update %s %s: %s, statusCode: %d, response: %s",
-                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), response.code(), toBody(response)));
+                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), response.code(), toBody(response, error)));
             }
 
             // Success
+        });
+    }
 
-        } catch (IOException e) {
-            throw new ConnectorIOException(String.format("Failed to update %s %s: %s",
-                    this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue()), e);
+    /**
+     * Check the response of the write request without blocking.
+     * Cancelling the returned future cancels the request in flight.
+     *
+     * @param call
+     * @param ioErrorMessage message of the error when the request failed on the network
+     * @param check          throws the exception for the error response
+     * @return
+     */
+    private CompletableFuture<Void> checkAsync(CompletableFuture<Response> call, Supplier<String> ioErrorMessage,
+                                               Consumer<Response> check) {
+        CompletableFuture<Void> result = call.handle((response, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new ConnectorIOException(ioErrorMessage.get(), cause);
+            }
+            try (Response r = response) {
+                check.accept(r);
+            }
+            return null;
+        });
+        result.whenComplete((v, e) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private String toBody(Response response, ClassifiedError error) {
+        if (error.getBody() != null) {
+            // Already read for the classification
+            return error.getBody();
         }
+        return toBody(response);
     }
 
     private String toBody(Response response) {
@@ -178,38 +359,33 @@ public abstract class AbstractRESTClient<C extends Configuration> {
      * @param body
      */
     protected void callDelete(ObjectClass objectClass, String url, Uid uid, Object body) {
-        try (Response response = delete(url, body)) {
-            if (this.errorHandler.isNotFound(response)) {
+        await(callDeleteAsync(objectClass, url, uid, body));
+    }
+
+    protected CompletableFuture<Void> callDeleteAsync(ObjectClass objectClass, String url, Uid uid, Object body) {
+        return checkAsync(deleteAsync(url, body), () -> String.format("Failed to delete %s %s: %s",
+                this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue()), response -> {
+            ClassifiedError error = this.errorHandler.classify(response);
+            if (error.isNotFound()) {
                 throw new UnknownUidException(uid, objectClass);
             }
 
-            if (this.errorHandler.isInvalidRequest(response)) {
+            if (error.isInvalidRequest()) {
                 throw new InvalidAttributeValueException(String.format("Bad request when deleting %s %s: %s, response: %s",
-                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), toBody(response)));
+                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), toBody(response, error)));
             }
 
-            if (!this.errorHandler.isOk(response)) {
+            if (!error.isOk()) {
                 throw new ConnectorIOException(String.format("Failed to delete %s %s: %s, statusCode: %d, response: %s",
-                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), response.code(), toBody(response)));
+                        this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue(), response.code(), toBody(response, error)));
             }
 
             // Success
-
-        } catch (IOException e) {
-            throw new ConnectorIOException(String.format("Failed to delete %s %s: %s",
-                    this.instanceName, objectClass.getObjectClassValue(), uid.getUidValue()), e);
-        }
+        });
     }
 
     private RequestBody createJsonRequestBody(Object body) {
-        String bodyString;
-        try {
-            bodyString = MAPPER.writeValueAsString(body);
-        } catch (JsonProcessingException e) {
-            throw new ConnectorIOException("Failed to write request json body", e);
-        }
-
-        return RequestBody.create(bodyString, MediaType.parse("application/json; charset=UTF-8"));
+        return JsonRequestBody.create(json, body);
     }
 
     private void throwExceptionIfUnauthorized(Response response) throws ConnectorIOException {
@@ -235,112 +411,542 @@ public abstract class AbstractRESTClient<C extends Configuration> {
     }
 
     protected Response get(String url, Map<String, String> params) throws ConnectorIOException {
-        HttpUrl.Builder httpBuilder = HttpUrl.parse(url).newBuilder();
+        return await(getAsync(url, params));
+    }
 
-        if (params != null) {
-            params.entrySet().stream().forEach(entry -> httpBuilder.addQueryParameter(entry.getKey(), entry.getValue()));
-        }
+    protected CompletableFuture<Response> getAsync(String url, Map<String, String> params) {
+        return getAsync(UrlTemplate.of(url).query().addAll(params).build());
+    }
+
+    /**
+     * GET with the URL built by {@link UrlTemplate}.
+     *
+     * @param url
+     * @return
+     * @throws ConnectorIOException
+     */
+    protected Response get(HttpUrl url) throws ConnectorIOException {
+        return await(getAsync(url));
+    }
 
-        final Request request = new Request.Builder()
-                .url(httpBuilder.build())
+    protected CompletableFuture<Response> getAsync(HttpUrl url) {
+        return getSingleFlight(new Request.Builder()
+                .url(url)
                 .get()
-                .build();
+                .build());
+    }
 
-        final Response response;
-        try {
-            response = httpClient.newCall(request).execute();
-        } catch (IOException e) {
-            throw new ConnectorIOException(this.instanceName + " server error", e);
+    /**
+     * Execute the GET request sharing the response with the identical requests in flight.
+     * The first caller executes the request. When other callers issue the same request in the same scope
+     * before the response arrives, the body is buffered and each caller gets its own copy of the response.
+     * If no caller joined, the response is returned as it is without buffering.
+     * The request never joins the request sent before the last write in the same scope completed,
+     * because the response may not reflect the write (e.g. read-modify-write of the user's groups).
+     *
+     * @param request
+     * @return
+     */
+    private CompletableFuture<Response> getSingleFlight(Request request) {
+        FlightKey key = new FlightKey(singleFlightScope, writeGeneration().get(), request.url().toString());
+        InFlight flight = new InFlight();
+
+        while (true) {
+            InFlight current = IN_FLIGHT.putIfAbsent(key, flight);
+            if (current == null) {
+                break;
+            }
+            if (current.join()) {
+                return current.share();
+            }
+            // The leader has already finished, try again
+            IN_FLIGHT.remove(key, current);
+        }
+
+        CompletableFuture<Response> call = executeAsync(request);
+        CompletableFuture<Response> leader = new CompletableFuture<>();
+        call.whenComplete((response, e) -> {
+            IN_FLIGHT.remove(key, flight);
+            int followers = flight.seal();
+
+            if (e != null) {
+                flight.result.completeExceptionally(e);
+                leader.completeExceptionally(e);
+                return;
+            }
+            if (followers <= 0) {
+                if (!leader.complete(response)) {
+                    // Cancelled by the caller
+                    response.close();
+                }
+                return;
+            }
+
+            try (Response r = response) {
+                ResponseBody body = r.body();
+                flight.bytes = body != null ? body.bytes() : new byte[0];
+                flight.contentType = body != null ? body.contentType() : null;
+
+                flight.result.complete(r);
+                leader.complete(flight.copy(r));
+
+            } catch (IOException ex) {
+                ConnectorIOException error = new ConnectorIOException(this.instanceName + " server error", ex);
+                flight.result.completeExceptionally(error);
+                leader.completeExceptionally(error);
+            }
+        });
+        leader.whenComplete((r, e) -> {
+            // Cancel the request only if no other caller shares it
+            if (leader.isCancelled() && flight.sealAlone()) {
+                IN_FLIGHT.remove(key, flight);
+                call.cancel(true);
+            }
+        });
+        return leader;
+    }
+
+    private AtomicLong writeGeneration() {
+        return WRITE_GENERATIONS.computeIfAbsent(singleFlightScope, k -> new AtomicLong());
+    }
+
+    static class FlightKey {
+        private final Object scope;
+        private final long generation;
+        private final String url;
+
+        FlightKey(Object scope, long generation, String url) {
+            this.scope = scope;
+            this.generation = generation;
+            this.url = url;
         }
 
-        throwExceptionIfUnauthorized(response);
-        throwExceptionIfServerError(response);
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FlightKey)) return false;
+            FlightKey that = (FlightKey) o;
+            // Share only in the same scope (same credentials) and between the writes
+            return scope.equals(that.scope) && generation == that.generation && url.equals(that.url);
+        }
 
-        return response;
+        @Override
+        public int hashCode() {
+            return 31 * (31 * scope.hashCode() + Long.hashCode(generation)) + url.hashCode();
+        }
+    }
+
+    static class InFlight {
+        // -1 means sealed, no more followers can join
+        private final AtomicInteger followers = new AtomicInteger();
+        private final CompletableFuture<Response> result = new CompletableFuture<>();
+        private volatile byte[] bytes;
+        private volatile MediaType contentType;
+
+        boolean join() {
+            while (true) {
+                int count = followers.get();
+                if (count < 0) {
+                    return false;
+                }
+                if (followers.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        int seal() {
+            return followers.getAndSet(-1);
+        }
+
+        boolean sealAlone() {
+            return followers.compareAndSet(0, -1);
+        }
+
+        CompletableFuture<Response> share() {
+            // Each caller consumes its own copy of the body
+            return result.thenApply(this::copy);
+        }
+
+        Response copy(Response response) {
+            return response.newBuilder().body(ResponseBody.create(bytes, contentType)).build();
+        }
     }
 
     protected <T> int getAll(QueryHandler<T> handler, int pageSize, BiFunction<Integer, Integer, List<T>> apiCall) {
+        return getAll(handler, pageSize, 1, apiCall);
+    }
+
+    /**
+     * Fetch all pages by issuing the page requests concurrently.
+     * The results are still delivered to the handler in offset order.
+     *
+     * @param handler
+     * @param pageSize
+     * @param concurrency max number of the page requests in flight, it's raised to {@link #pageLookAhead} + 1.
+     *                    The next pages are fetched while the current page is handled.
+     * @param apiCall
+     * @return number of the handled objects
+     */
+    protected <T> int getAll(QueryHandler<T> handler, int pageSize, int concurrency, BiFunction<Integer, Integer, List<T>> apiCall) {
+        int lookAhead = resolveLookAhead(concurrency);
+        BiFunction<Integer, Integer, CompletableFuture<List<T>>> call;
+        if (lookAhead > 0) {
+            // The blocking API call needs the thread to run ahead
+            call = (start, size) -> CompletableFuture.supplyAsync(() -> apiCall.apply(start, size), Workers.executor());
+        } else {
+            call = (start, size) -> CompletableFuture.completedFuture(apiCall.apply(start, size));
+        }
+        return getAllPages(handler, pageSize, lookAhead, call,
+                (results, h) -> {
+                    for (T result : results) {
+                        if (!h.handle(result)) {
+                            break;
+                        }
+                    }
+                    return results.size();
+                },
+                (results) -> {
+                    // Nothing to release
+                });
+    }
+
+    /**
+     * Fetch all pages and decode each page response as a stream.
+     * The response of the pages fetched ahead is buffered as raw bytes, the objects are decoded when it's handled.
+     *
+     * @param handler
+     * @param pageSize
+     * @param concurrency max number of the page requests in flight, it's raised to {@link #pageLookAhead} + 1
+     * @param pageCall    asynchronous API call which returns the response of the page (e.g. {@link #getAsync(HttpUrl)})
+     * @param reader      decoder of the page response
+     * @return number of the handled objects
+     */
+    protected <T> int getAll(QueryHandler<T> handler, int pageSize, int concurrency,
+                             BiFunction<Integer, Integer, CompletableFuture<Response>> pageCall, PageReader<T> reader) {
+        int lookAhead = resolveLookAhead(concurrency);
+        BiFunction<Integer, Integer, CompletableFuture<Response>> call = pageCall;
+        if (lookAhead > 0) {
+            // Read the body when the response arrives, no thread waits for the page
+            call = (start, size) -> {
+                CompletableFuture<Response> response = pageCall.apply(start, size);
+                CompletableFuture<Response> buffered = response.thenApply(this::bufferResponse);
+                buffered.whenComplete((r, e) -> {
+                    if (buffered.isCancelled()) {
+                        // Stop the request in flight, or close the response which has already arrived
+                        response.cancel(true);
+                        response.thenAccept(Response::close);
+                    }
+                });
+                return buffered;
+            };
+        }
+        return getAllPages(handler, pageSize, lookAhead, call, reader, Response::close);
+    }
+
+    private int resolveLookAhead(int concurrency) {
+        // The pages fetched ahead of the page being handled
+        return Math.max(pageLookAhead, concurrency - 1);
+    }
+
+    /**
+     * Apply the task to each item with the given number of the tasks running at the same time.
+     * The results are returned in the order of the items. When a task fails, the items not started yet are skipped
+     * and the error is thrown after the running tasks finish.
+     *
+     * @param items
+     * @param concurrency max number of the tasks running at the same time
+     * @param task
+     * @return results of the task in the order of the items
+     */
+    protected <T, R> List<R> mapConcurrently(List<T> items, int concurrency, Function<T, R> task) {
+        if (concurrency <= 1 || items.size() <= 1) {
+            return items.stream().map(task).collect(Collectors.toList());
+        }
+
+        AtomicReferenceArray<R> results = new AtomicReferenceArray<>(items.size());
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean stopped = new AtomicBoolean();
+
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(concurrency, items.size())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(() -> {
+                int index;
+                while (!stopped.get() && (index = next.getAndIncrement()) < items.size()) {
+                    try {
+                        results.set(index, task.apply(items.get(index)));
+                    } catch (RuntimeException e) {
+                        stopped.set(true);
+                        throw e;
+                    }
+                }
+            }, Workers.executor());
+        }
+        try {
+            await(CompletableFuture.allOf(workers));
+        } finally {
+            // Stop taking the next item when the caller gives up waiting
+            stopped.set(true);
+        }
+
+        List<R> list = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            list.add(results.get(i));
+        }
+        return list;
+    }
+
+    /**
+     * Fetch all pages while keeping the next pages in flight.
+     * The handler is always called by the current thread in offset order, only the API calls run asynchronously.
+     *
+     * @param handler
+     * @param pageSize
+     * @param lookAhead number of the pages fetched ahead of the page being handled (0 means sequential)
+     * @param pageCall
+     * @param reader    returns the number of the objects in the page
+     * @param release   releases the page
+     * @return number of the handled objects
+     */
+    private <T, P> int getAllPages(QueryHandler<T> handler, int pageSize, int lookAhead,
+                                   BiFunction<Integer, Integer, CompletableFuture<P>> pageCall,
+                                   PageConsumer<T, P> reader, Consumer<P> release) {
+        CountingHandler<T> counting = new CountingHandler<>(handler);
         // Start offset (0 or 1) depends on the resource
-        int start = startOffset;
-        int count = 0;
+        int next = startOffset;
+        Deque<CompletableFuture<P>> pages = new ArrayDeque<>(lookAhead + 1);
         try {
             while (true) {
-                List<T> results = apiCall.apply(start, pageSize);
-
-                if (results.size() == 0) {
-                    // End of the page
-                    return count;
+                P page;
+                // Keep the current page and the look-ahead pages in flight
+                while (pages.size() <= lookAhead) {
+                    pages.add(pageCall.apply(next, pageSize));
+                    next += pageSize;
                 }
-
-                for (T result : results) {
-                    count++;
-                    if (!handler.handle(result)) {
-                        return count;
+                page = awaitPage(pages.poll());
+
+                try {
+                    int size = reader.read(page, counting);
+                    if (size < pageSize || counting.stopped) {
+                        // The short page is the last page, don't request the next pages.
+                        // Or the handler stopped.
+                        return counting.count;
                     }
+                } finally {
+                    release.accept(page);
                 }
-
-                // search next page
-                start += pageSize;
             }
+        } catch (IOException e) {
+            throw new ConnectorIOException(String.format("Cannot parse %s REST API Response", instanceName), e);
         } catch (RuntimeException e) {
             if (!(e instanceof ConnectorException)) {
                 throw new ConnectorException(e);
             }
             throw e;
+        } finally {
+            // Cancel the pages fetched ahead when reached the end or the handler stopped
+            pages.forEach(f -> {
+                f.cancel(true);
+                f.whenComplete((page, e) -> {
+                    if (page != null) {
+                        release.accept(page);
+                    }
+                });
+            });
         }
     }
 
-    private Response post(String url, Object body) throws IOException {
-        RequestBody requestBody = createJsonRequestBody(body);
+    private <P> P awaitPage(CompletableFuture<P> page) {
+        try {
+            return page.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ConnectorIOException(this.instanceName + " failed to fetch the page", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectorIOException(this.instanceName + " interrupted while fetching the page", e);
+        }
+    }
 
-        final Request request = new Request.Builder()
-                .url(url)
-                .post(requestBody)
-                .build();
+    /**
+     * Wait for the asynchronous call and unwrap the error.
+     *
+     * @param future
+     * @param <T>
+     * @return
+     */
+    protected <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ConnectorIOException(this.instanceName + " server error", cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ConnectorIOException(this.instanceName + " interrupted while waiting for the response", e);
+        }
+    }
 
-        final Response response = httpClient.newCall(request).execute();
+    private Response bufferResponse(Response response) {
+        try {
+            ResponseBody body = response.body();
+            if (body != null) {
+                body.source().request(Long.MAX_VALUE);
+            }
+            return response;
+        } catch (IOException e) {
+            response.close();
+            throw new ConnectorIOException(this.instanceName + " failed to read the page", e);
+        }
+    }
+
+    /**
+     * Decode the JSON array in the list response as a stream and pass each object to the handler as soon as it's decoded.
+     * It stops reading when the handler returns false.
+     *
+     * @param response
+     * @param fieldName field name of the array in the response (e.g. users)
+     * @param reader
+     * @param handler
+     * @return number of the decoded objects
+     * @throws IOException
+     */
+    protected <T> int readList(Response response, String fieldName, ElementReader<T> reader, QueryHandler<T> handler) throws IOException {
+        if (!this.errorHandler.isOk(response)) {
+            throw new ConnectorIOException(String.format("Failed to list %s %s, statusCode: %d, response: %s",
+                    this.instanceName, fieldName, response.code(), toBody(response)));
+        }
+        return readList(response.body().byteStream(), fieldName, reader, handler);
+    }
 
-        throwExceptionIfUnauthorized(response);
-        throwExceptionIfServerError(response);
+    /**
+     * Decode the JSON array in the list response body as a stream.
+     *
+     * @param body
+     * @param fieldName field name of the array in the response (e.g. users)
+     * @param reader
+     * @param handler
+     * @return number of the decoded objects
+     * @throws IOException
+     * @see #readList(Response, String, ElementReader, QueryHandler)
+     */
+    protected <T> int readList(InputStream body, String fieldName, ElementReader<T> reader, QueryHandler<T> handler) throws IOException {
+        try (JsonParser parser = json.mapper().getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected the list response object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
 
-        return response;
+                if (!fieldName.equals(name)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (token != JsonToken.START_ARRAY) {
+                    throw new JsonParseException(parser, "Expected the array of " + fieldName);
+                }
+
+                int count = 0;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    T element = reader.read(parser);
+                    count++;
+                    if (!handler.handle(element)) {
+                        break;
+                    }
+                }
+                return count;
+            }
+        }
+        throw new ConnectorIOException(String.format("Unexpected %s REST API Response, no %s", instanceName, fieldName));
     }
 
-    private Response put(String url, Object body) throws IOException {
-        RequestBody requestBody = createJsonRequestBody(body);
+    protected <T> ElementReader<T> elementReader(Class<T> type) {
+        ObjectReader reader = json.readerFor(type);
+        return parser -> reader.readValue(parser);
+    }
 
-        final Request request = new Request.Builder()
-                .url(url)
-                .put(requestBody)
-                .build();
+    @FunctionalInterface
+    public interface PageReader<T> extends PageConsumer<T, Response> {
+    }
 
-        final Response response = httpClient.newCall(request).execute();
+    @FunctionalInterface
+    public interface ElementReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
 
-        throwExceptionIfUnauthorized(response);
-        throwExceptionIfServerError(response);
+    @FunctionalInterface
+    interface PageConsumer<T, P> {
+        int read(P page, QueryHandler<T> handler) throws IOException;
+    }
+
+    static class CountingHandler<T> implements QueryHandler<T> {
+        private final QueryHandler<T> delegate;
+        int count;
+        boolean stopped;
+
+        CountingHandler(QueryHandler<T> delegate) {
+            this.delegate = delegate;
+        }
 
-        return response;
+        @Override
+        public boolean handle(T arg) {
+            count++;
+            if (!delegate.handle(arg)) {
+                stopped = true;
+                return false;
+            }
+            return true;
+        }
     }
 
-    private Response patch(String url, Object body) throws IOException {
-        RequestBody requestBody = createJsonRequestBody(body);
+    protected CompletableFuture<Response> postAsync(String url, Object body) {
+        return executeAsync(postRequest(url, body));
+    }
 
-        final Request request = new Request.Builder()
-                .url(url)
-                .patch(requestBody)
-                .build();
+    protected CompletableFuture<Response> putAsync(String url, Object body) {
+        return executeAsync(putRequest(url, body));
+    }
 
-        final Response response = httpClient.newCall(request).execute();
+    protected CompletableFuture<Response> patchAsync(String url, Object body) {
+        return executeAsync(patchRequest(url, body));
+    }
+
+    protected CompletableFuture<Response> deleteAsync(String url, Object body) {
+        return executeAsync(deleteRequest(url, body));
+    }
 
-        throwExceptionIfUnauthorized(response);
-        throwExceptionIfServerError(response);
+    private Request postRequest(String url, Object body) {
+        return new Request.Builder()
+                .url(UrlTemplate.of(url).url())
+                .post(createJsonRequestBody(body))
+                .build();
+    }
+
+    private Request putRequest(String url, Object body) {
+        return new Request.Builder()
+                .url(UrlTemplate.of(url).url())
+                .put(createJsonRequestBody(body))
+                .build();
+    }
 
-        return response;
+    private Request patchRequest(String url, Object body) {
+        return new Request.Builder()
+                .url(UrlTemplate.of(url).url())
+                .patch(createJsonRequestBody(body))
+                .build();
     }
 
-    private Response delete(String url, Object body) throws IOException {
+    private Request deleteRequest(String url, Object body) {
         final Request.Builder builder = new Request.Builder()
-                .url(url);
+                .url(UrlTemplate.of(url).url());
 
         if (body != null) {
             RequestBody requestBody = createJsonRequestBody(body);
@@ -349,14 +955,212 @@ public abstract class AbstractRESTClient<C extends Configuration> {
             builder.delete();
         }
 
-        final Request request = builder.build();
+        return builder.build();
+    }
+
+    /**
+     * Execute the request and wait for the response. It's a blocking wrapper of {@link #executeAsync(Request)}.
+     *
+     * @param request
+     * @return
+     * @throws IOException
+     */
+    protected Response execute(Request request) throws IOException {
+        CompletableFuture<Response> future = executeAsync(request);
+        try {
+            return future.get();
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            // Cancel the call in flight
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        }
+    }
+
+    /**
+     * Execute the request asynchronously with the retry for the transient errors.
+     * GET is retried on the network error, 5xx (except the application errors of the resource) and 429.
+     * PUT and DELETE are retried on 503 and 429 only because the server didn't process the request in these cases.
+     * The other methods (e.g. POST) are never retried.
+     * Each attempt passes through the rate limiter which slows down when the resource throttles the requests,
+     * and fails fast while the circuit breaker is open.
+     * No thread is blocked while waiting for the response, the rate limit or the retry delay.
+     *
+     * @param request
+     * @return future of the response, which fails with IOException or ConnectorException
+     */
+    protected CompletableFuture<Response> executeAsync(Request request) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        attemptAsync(request, 0, System.nanoTime(), result);
+        return result;
+    }
+
+    private void attemptAsync(Request request, int attempt, long start, CompletableFuture<Response> result) {
+        if (result.isDone()) {
+            // Cancelled
+            return;
+        }
+        circuitBreaker.allowRequest(this::probeAsync).whenComplete((allowed, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+                return;
+            }
+            if (!allowed) {
+                result.completeExceptionally(new ConnectionFailedException(
+                        String.format("%s REST API is unavailable, the circuit breaker is open", this.instanceName)));
+                return;
+            }
+            callAsync(request, attempt, start, result);
+        });
+    }
+
+    private void callAsync(Request request, int attempt, long start, CompletableFuture<Response> result) {
+        rateLimiter.acquireAsync().thenRun(() -> {
+            if (result.isDone()) {
+                // Cancelled while waiting for the rate limit
+                rateLimiter.release();
+                return;
+            }
+            final long callStart = System.nanoTime();
+            final Call call;
+            try {
+                call = httpClient.newCall(request);
+            } catch (RuntimeException e) {
+                rateLimiter.release();
+                result.completeExceptionally(e);
+                return;
+            }
+            result.whenComplete((r, e) -> {
+                if (result.isCancelled()) {
+                    call.cancel();
+                }
+            });
+
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    circuitBreaker.record(System.nanoTime() - callStart, true);
+                    rateLimiter.release();
+                    // The write may have been applied even if the response was lost
+                    recordWrite(request);
+
+                    if (isRetryableMethodOnIOException(request)) {
+                        long delay = retryDelay(request, attempt, null, start, e.toString());
+                        if (delay >= 0) {
+                            retryAsync(request, attempt, start, result, delay);
+                            return;
+                        }
+                    }
+                    result.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    circuitBreaker.record(System.nanoTime() - callStart, isUnavailable(response.code()));
+                    rateLimiter.release(isThrottled(response.code()));
+                    recordWrite(request);
+
+                    if (isRetryableStatus(request, response.code())) {
+                        long delay = retryDelay(request, attempt, response.header("Retry-After"), start, String.valueOf(response.code()));
+                        if (delay >= 0) {
+                            response.close();
+                            retryAsync(request, attempt, start, result, delay);
+                            return;
+                        }
+                    }
+
+                    try {
+                        throwExceptionIfUnauthorized(response);
+                        throwExceptionIfServerError(response);
+                    } catch (RuntimeException e) {
+                        response.close();
+                        result.completeExceptionally(e);
+                        return;
+                    }
+
+                    if (!result.complete(response)) {
+                        // Cancelled by the caller
+                        response.close();
+                    }
+                }
+            });
+        });
+    }
+
+    private void recordWrite(Request request) {
+        if (!request.method().equals("GET")) {
+            // Before completing the caller's future, so the caller's next GET doesn't join the older one
+            writeGeneration().incrementAndGet();
+        }
+    }
+
+    private void retryAsync(Request request, int attempt, long start, CompletableFuture<Response> result, long delayMillis) {
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS, Workers.executor())
+                .execute(() -> attemptAsync(request, attempt + 1, start, result));
+    }
 
-        final Response response = httpClient.newCall(request).execute();
+    /**
+     * Check whether the resource is available for the circuit breaker without blocking the caller.
+     * The default implementation allows the request as the trial. Override it to call the lightweight endpoint.
+     *
+     * @return future completed with true if the resource is available
+     */
+    protected CompletableFuture<Boolean> probeAsync() {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    private boolean isUnavailable(int code) {
+        return code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    private boolean isThrottled(int code) {
+        return code == 429 || code == 503;
+    }
+
+    private boolean isRetryableMethodOnIOException(Request request) {
+        return request.method().equals("GET");
+    }
 
-        throwExceptionIfUnauthorized(response);
-        throwExceptionIfServerError(response);
+    private boolean isRetryableStatus(Request request, int code) {
+        switch (request.method()) {
+            case "GET":
+                return code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+            case "PUT":
+            case "DELETE":
+                return code == 429 || code == 503;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Decide the delay before the next retry.
+     *
+     * @return delay in milliseconds, or -1 if no more retry
+     */
+    private long retryDelay(Request request, int attempt, String retryAfter, long start, String reason) {
+        if (attempt >= retryCount) {
+            return -1;
+        }
+        long delay = retryPolicy.delayMillis(attempt, retryAfter);
+        if (!retryPolicy.isWithinBudget(start, delay)) {
+            LOG.info("Give up retrying {0} {1} for {2}, the retry budget is exhausted", request.method(), request.url(), reason);
+            return -1;
+        }
 
-        return response;
+        LOG.info("Retry {0} {1} for {2} after {3}ms (attempt {4}/{5})",
+                request.method(), request.url(), reason, delay, attempt + 1, retryCount);
+        return delay;
     }
 
     protected String snapshotResponse(Response response) {
@@ -0,0 +1,303 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client-side rate limiter which combines the token bucket (requests per second) and the concurrency limit.
+ * Both limits adapt with AIMD: they are halved when the resource throttles the request,
+ * and they grow back additively while the requests succeed, up to the configured maximum.
+ * It's shared by all connector instances using the same resource, so the total load stays under the server-side limits.
+ * The waiting requests are served in FIFO order.
+ *
+ * @author Hiroyuki Wada
+ */
+public class AdaptiveRateLimiter {
+
+    private static final Map<String, AdaptiveRateLimiter> SHARED = new ConcurrentHashMap<>();
+
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double MIN_RATE = 1.0;
+    private static final double MIN_CONCURRENCY = 1.0;
+    // +1 request per second every 10 successful requests
+    private static final double RATE_INCREASE = 0.1;
+
+    private final double maxRate;
+    private final double maxConcurrency;
+    // Don't use the monitor lock not to pin the carrier thread when running on the virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Current limits
+    private double rate;
+    private double concurrencyLimit;
+
+    // Token bucket state
+    private double tokens;
+    private long lastRefillNanos;
+
+    private int inFlight;
+
+    // Requests waiting for the free slot or the token, the head is served first
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private boolean tokenWaitScheduled;
+
+    /**
+     * @param maxRequestsPerSecond maximum requests per second, 0 means no rate limit
+     * @param maxConcurrency       maximum concurrent requests, 0 means no concurrency limit
+     */
+    public AdaptiveRateLimiter(int maxRequestsPerSecond, int maxConcurrency) {
+        this.maxRate = maxRequestsPerSecond;
+        this.maxConcurrency = maxConcurrency;
+        this.rate = maxRequestsPerSecond;
+        this.concurrencyLimit = maxConcurrency;
+        this.tokens = maxRequestsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Get the rate limiter shared by all connector instances using the same key.
+     * The key should identify the resource (e.g. base URL).
+     *
+     * @param key
+     * @param maxRequestsPerSecond
+     * @param maxConcurrency
+     * @return
+     */
+    public static AdaptiveRateLimiter shared(String key, int maxRequestsPerSecond, int maxConcurrency) {
+        String sharedKey = key + ":" + maxRequestsPerSecond + ":" + maxConcurrency;
+        return SHARED.computeIfAbsent(sharedKey, k -> new AdaptiveRateLimiter(maxRequestsPerSecond, maxConcurrency));
+    }
+
+    public boolean isEnabled() {
+        return maxRate > 0 || maxConcurrency > 0;
+    }
+
+    /**
+     * Wait until the request is allowed. {@link #release(boolean)} must be called after the request.
+     *
+     * @throws InterruptedException
+     */
+    public void acquire() throws InterruptedException {
+        if (!isEnabled()) {
+            return;
+        }
+        CompletableFuture<Void> future = acquireAsync();
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            if (!future.cancel(false)) {
+                // Already allowed, give back the slot
+                release();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #acquire()}. No thread is blocked while waiting.
+     * {@link #release(boolean)} must be called after the request.
+     *
+     * @return future completed when the request is allowed
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        if (!isEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        List<CompletableFuture<Void>> allowed;
+        lock.lock();
+        try {
+            waiters.addLast(future);
+            allowed = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        complete(allowed);
+        return future;
+    }
+
+    /**
+     * Allow the waiters from the head while both the slot and the token are available.
+     * When the head waits for the token, only one timer is scheduled for it.
+     * Must be called with the lock held, and the returned futures must be completed after unlocking.
+     *
+     * @return futures of the allowed waiters
+     */
+    private List<CompletableFuture<Void>> dispatch() {
+        List<CompletableFuture<Void>> allowed = null;
+        while (!waiters.isEmpty() && !isConcurrencyFull()) {
+            if (waiters.peekFirst().isDone()) {
+                // Cancelled
+                waiters.pollFirst();
+                continue;
+            }
+            if (tokenWaitScheduled) {
+                break;
+            }
+            long waitNanos = takeToken();
+            if (waitNanos > 0) {
+                tokenWaitScheduled = true;
+                CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS, Workers.executor())
+                        .execute(this::onTokenWaitElapsed);
+                break;
+            }
+            inFlight++;
+            if (allowed == null) {
+                allowed = new ArrayList<>();
+            }
+            allowed.add(waiters.pollFirst());
+        }
+        return allowed == null ? Collections.emptyList() : allowed;
+    }
+
+    private void onTokenWaitElapsed() {
+        List<CompletableFuture<Void>> allowed;
+        lock.lock();
+        try {
+            tokenWaitScheduled = false;
+            allowed = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        complete(allowed);
+    }
+
+    private void complete(List<CompletableFuture<Void>> allowed) {
+        for (CompletableFuture<Void> future : allowed) {
+            if (!future.complete(null)) {
+                // Cancelled after it was allowed
+                release();
+            }
+        }
+    }
+
+    private boolean isConcurrencyFull() {
+        return maxConcurrency > 0 && inFlight >= (int) concurrencyLimit;
+    }
+
+    /**
+     * Notify the result of the request and release the concurrency slot.
+     *
+     * @param throttled true if the resource throttled the request (e.g. 429), false if it succeeded
+     */
+    public void release(boolean throttled) {
+        if (!isEnabled()) {
+            return;
+        }
+        List<CompletableFuture<Void>> allowed;
+        lock.lock();
+        try {
+            inFlight--;
+            if (throttled) {
+                if (maxRate > 0) {
+                    rate = Math.max(MIN_RATE, rate * DECREASE_FACTOR);
+                    // Drop the burst not to hit the limit again immediately
+                    tokens = Math.min(tokens, 0);
+                }
+                if (maxConcurrency > 0) {
+                    concurrencyLimit = Math.max(MIN_CONCURRENCY, concurrencyLimit * DECREASE_FACTOR);
+                }
+            } else {
+                if (maxRate > 0) {
+                    rate = Math.min(maxRate, rate + RATE_INCREASE);
+                }
+                if (maxConcurrency > 0) {
+                    // +1 per the current window like TCP congestion avoidance
+                    concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1.0 / concurrencyLimit);
+                }
+            }
+            allowed = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        complete(allowed);
+    }
+
+    /**
+     * Release the concurrency slot without adapting the limits (e.g. network error).
+     */
+    public void release() {
+        if (!isEnabled()) {
+            return;
+        }
+        List<CompletableFuture<Void>> allowed;
+        lock.lock();
+        try {
+            inFlight--;
+            // Hand over the free slot to the head waiter
+            allowed = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        complete(allowed);
+    }
+
+    private long takeToken() {
+        if (maxRate <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(rate, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * rate);
+        lastRefillNanos = now;
+
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0;
+        }
+        return (long) ((1.0 - tokens) / rate * 1_000_000_000L);
+    }
+
+    public double getRate() {
+        lock.lock();
+        try {
+            return rate;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getConcurrencyLimit() {
+        lock.lock();
+        try {
+            return concurrencyLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format("rate: %.1f/s, concurrency: %.1f, inFlight: %d, waiting: %d", rate, concurrencyLimit, inFlight, waiters.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * QueryHandler which buffers the objects and resolves them in bulk before passing them to the delegate handler.
+ * It's used for fetching the associations of the objects with one API call instead of one call per object.
+ * {@link #flush()} must be called after the query finished to handle the rest of the buffered objects.
+ *
+ * @author Hiroyuki Wada
+ */
+public class BatchQueryHandler<T> implements QueryHandler<T> {
+
+    private final QueryHandler<T> delegate;
+    private final int batchSize;
+    private final Consumer<List<T>> resolver;
+    private final List<T> buffer;
+    private boolean stopped;
+
+    public BatchQueryHandler(QueryHandler<T> delegate, int batchSize, Consumer<List<T>> resolver) {
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.resolver = resolver;
+        this.buffer = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public boolean handle(T arg) {
+        if (stopped) {
+            return false;
+        }
+        buffer.add(arg);
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+        return !stopped;
+    }
+
+    /**
+     * Resolve the buffered objects and pass them to the delegate handler.
+     * The rest of the objects are dropped when the delegate handler returns false.
+     */
+    public void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        if (stopped) {
+            buffer.clear();
+            return;
+        }
+        try {
+            resolver.accept(buffer);
+            for (T obj : buffer) {
+                if (!delegate.handle(obj)) {
+                    stopped = true;
+                    break;
+                }
+            }
+        } finally {
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import org.identityconnectors.common.logging.Log;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker which stops calling the degraded resource.
+ * It's closed normally and records the outcome of the recent calls. When the failure rate or the slow call rate
+ * exceeds the threshold, it opens and the calls fail fast without waiting for the timeout.
+ * After the open duration, one caller probes the resource (half-open). The breaker closes if the probe succeeds,
+ * or opens again if it fails.
+ *
+ * @author Hiroyuki Wada
+ */
+public class CircuitBreaker {
+
+    private static final Log LOG = Log.getLog(CircuitBreaker.class);
+
+    private static final Map<String, CircuitBreaker> SHARED = new ConcurrentHashMap<>();
+
+    private static final CompletableFuture<Boolean> ALLOWED = CompletableFuture.completedFuture(true);
+    private static final CompletableFuture<Boolean> NOT_ALLOWED = CompletableFuture.completedFuture(false);
+
+    // Count based sliding window
+    static final int WINDOW_SIZE = 20;
+    static final int MINIMUM_CALLS = 10;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final long openDurationNanos;
+
+    private final boolean[] failures = new boolean[WINDOW_SIZE];
+    private final boolean[] slowCalls = new boolean[WINDOW_SIZE];
+    private int next;
+    private int count;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+
+    /**
+     * @param failureRateThreshold   failure rate in percentage to open the breaker, 0 means disabled
+     * @param slowCallRateThreshold  slow call rate in percentage to open the breaker, 0 means disabled
+     * @param slowCallDurationMillis duration to regard the call as slow
+     * @param openDurationMillis     duration to stay open before probing the resource
+     */
+    public CircuitBreaker(int failureRateThreshold, int slowCallRateThreshold, long slowCallDurationMillis, long openDurationMillis) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(slowCallDurationMillis);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+    }
+
+    /**
+     * Get the circuit breaker shared by all connector instances using the same key.
+     * The key should identify the resource (e.g. base URL).
+     *
+     * @param key
+     * @param failureRateThreshold
+     * @param slowCallRateThreshold
+     * @param slowCallDurationMillis
+     * @param openDurationMillis
+     * @return
+     */
+    public static CircuitBreaker shared(String key, int failureRateThreshold, int slowCallRateThreshold,
+                                        long slowCallDurationMillis, long openDurationMillis) {
+        String sharedKey = key + ":" + failureRateThreshold + ":" + slowCallRateThreshold + ":"
+                + slowCallDurationMillis + ":" + openDurationMillis;
+        return SHARED.computeIfAbsent(sharedKey, k -> new CircuitBreaker(failureRateThreshold, slowCallRateThreshold,
+                slowCallDurationMillis, openDurationMillis));
+    }
+
+    public boolean isEnabled() {
+        return failureRateThreshold > 0 || slowCallRateThreshold > 0;
+    }
+
+    /**
+     * Check whether the call is permitted. When the open duration has elapsed, the caller probes the resource
+     * with the given probe and the call is permitted only if the probe succeeds.
+     * While another caller is probing, the call isn't permitted.
+     * The probe is asynchronous, no thread is blocked while probing.
+     *
+     * @param probe lightweight asynchronous call to check the resource is available
+     * @return future completed with true if the call is permitted
+     */
+    public CompletableFuture<Boolean> allowRequest(Supplier<CompletableFuture<Boolean>> probe) {
+        if (!isEnabled()) {
+            return ALLOWED;
+        }
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return ALLOWED;
+            }
+            if (state == State.HALF_OPEN || System.nanoTime() - openedAtNanos < openDurationNanos) {
+                return NOT_ALLOWED;
+            }
+            state = State.HALF_OPEN;
+        }
+
+        CompletableFuture<Boolean> probing;
+        try {
+            probing = probe.get();
+        } catch (RuntimeException e) {
+            probing = new CompletableFuture<>();
+            probing.completeExceptionally(e);
+        }
+        return probing.handle((result, e) -> {
+            if (e != null) {
+                LOG.info("Circuit breaker probe failed: {0}", e.toString());
+            }
+            boolean available = e == null && Boolean.TRUE.equals(result);
+            synchronized (this) {
+                if (available) {
+                    LOG.info("Circuit breaker is closed, the resource is available again");
+                    reset();
+                } else {
+                    open();
+                }
+            }
+            return available;
+        });
+    }
+
+    /**
+     * Record the outcome of the call.
+     *
+     * @param durationNanos
+     * @param failure       true if the call failed by the resource error (e.g. network error, 5xx)
+     */
+    public void record(long durationNanos, boolean failure) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            if (state != State.CLOSED) {
+                return;
+            }
+            failures[next] = failure;
+            slowCalls[next] = durationNanos >= slowCallDurationNanos;
+            next = (next + 1) % WINDOW_SIZE;
+            if (count < WINDOW_SIZE) {
+                count++;
+            }
+            if (count < MINIMUM_CALLS) {
+                return;
+            }
+
+            int failureRate = rate(failures);
+            int slowCallRate = rate(slowCalls);
+            if ((failureRateThreshold > 0 && failureRate >= failureRateThreshold)
+                    || (slowCallRateThreshold > 0 && slowCallRate >= slowCallRateThreshold)) {
+                LOG.warn("Circuit breaker is open, failure rate: {0}%, slow call rate: {1}%", failureRate, slowCallRate);
+                open();
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private int rate(boolean[] outcomes) {
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (outcomes[i]) {
+                n++;
+            }
+        }
+        return n * 100 / count;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        next = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the ObjectMapper and the readers/writers specialized for each body type,
+ * so the type isn't resolved again for each request.
+ *
+ * @author Hiroyuki Wada
+ */
+public class JsonCodec {
+
+    private static final JsonCodec STANDARD = new JsonCodec(new ObjectMapper());
+
+    private final ObjectMapper mapper;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private JsonCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public static JsonCodec standard() {
+        return STANDARD;
+    }
+
+    public ObjectMapper mapper() {
+        return mapper;
+    }
+
+    public ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
+
+    public ObjectWriter writerFor(Class<?> type) {
+        // The target stream is owned by the caller (e.g. the request sink of OkHttp), don't close it
+        return writers.computeIfAbsent(type, t -> mapper.writerFor(t)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+
+import java.io.IOException;
+
+/**
+ * Request body which serializes the object with Jackson directly into an okio buffer,
+ * without building the intermediate JSON string.
+ * <p>
+ * The content length is known from the buffer, so the body is sent with the Content-Length header instead of
+ * the chunked transfer encoding. Writing the body shares the buffer segments without copying,
+ * and the body can be written again by the retry.
+ *
+ * @author Hiroyuki Wada
+ */
+public class JsonRequestBody extends RequestBody {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=UTF-8");
+
+    private final Buffer buffer;
+
+    private JsonRequestBody(Buffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public static JsonRequestBody create(JsonCodec json, Object value) {
+        Buffer buffer = new Buffer();
+        try {
+            json.writerFor(value.getClass()).writeValue(buffer.outputStream(), value);
+        } catch (IOException e) {
+            throw new ConnectorIOException("Failed to write the request json body", e);
+        }
+        return new JsonRequestBody(buffer);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        return buffer.size();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        buffer.copyTo(sink.getBuffer(), 0, buffer.size());
+        sink.emitCompleteSegments();
+    }
+}
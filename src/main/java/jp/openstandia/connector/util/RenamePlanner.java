@@ -0,0 +1,118 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import java.util.*;
+
+/**
+ * Orders the renames of the codes so that they can be applied as batches safely.
+ * A rename is applied after the rename which frees its new code (chain: a->b, b->c).
+ * The renames in a cycle (swap: a->b, b->a) are resolved by renaming one of them to a temporary code first.
+ * The steps of a cycle are tagged with the cycle number because they must succeed or be undone together.
+ *
+ * @author Hiroyuki Wada
+ */
+public class RenamePlanner {
+
+    private static final String TEMPORARY_CODE_PREFIX = "tmp-";
+    public static final int NO_CYCLE = -1;
+
+    public static class Step {
+        public final int index;
+        public final String currentCode;
+        public final String newCode;
+        public final boolean temporary;
+        // Cycle number, or NO_CYCLE
+        public final int cycle;
+
+        Step(int index, String currentCode, String newCode, boolean temporary) {
+            this(index, currentCode, newCode, temporary, NO_CYCLE);
+        }
+
+        Step(int index, String currentCode, String newCode, boolean temporary, int cycle) {
+            this.index = index;
+            this.currentCode = currentCode;
+            this.newCode = newCode;
+            this.temporary = temporary;
+            this.cycle = cycle;
+        }
+
+        public boolean inCycle() {
+            return cycle != NO_CYCLE;
+        }
+
+        @Override
+        public String toString() {
+            return currentCode + "->" + newCode;
+        }
+    }
+
+    private RenamePlanner() {
+    }
+
+    /**
+     * Create the phases of the renames. The steps in one phase don't depend on each other,
+     * and the phases must be applied in order.
+     *
+     * @param currentCodes current code of each rename
+     * @param newCodes     new code of each rename
+     * @return phases of the steps, the index of the step points to the original rename
+     */
+    public static List<List<Step>> plan(List<String> currentCodes, List<String> newCodes) {
+        // Key: current code
+        Map<String, Step> pending = new LinkedHashMap<>();
+        for (int i = 0; i < currentCodes.size(); i++) {
+            if (currentCodes.get(i).equals(newCodes.get(i))) {
+                // No change
+                continue;
+            }
+            pending.put(currentCodes.get(i), new Step(i, currentCodes.get(i), newCodes.get(i), false));
+        }
+
+        List<List<Step>> phases = new ArrayList<>();
+        int cycles = 0;
+        while (!pending.isEmpty()) {
+            List<Step> ready = new ArrayList<>();
+            for (Step step : pending.values()) {
+                // The new code isn't used by the other pending renames
+                if (!pending.containsKey(step.newCode)) {
+                    ready.add(step);
+                }
+            }
+
+            if (!ready.isEmpty()) {
+                ready.forEach(s -> pending.remove(s.currentCode));
+                phases.add(ready);
+                continue;
+            }
+
+            // All pending renames are in cycles, break one of them with the temporary code
+            int cycle = cycles++;
+            Step step = pending.values().iterator().next();
+            String temporaryCode = TEMPORARY_CODE_PREFIX + UUID.randomUUID().toString().replace("-", "");
+
+            // Tag the other renames in the same cycle
+            for (Step s = pending.get(step.newCode); s != step; s = pending.get(s.newCode)) {
+                pending.put(s.currentCode, new Step(s.index, s.currentCode, s.newCode, false, cycle));
+            }
+            pending.remove(step.currentCode);
+            pending.put(temporaryCode, new Step(step.index, temporaryCode, step.newCode, false, cycle));
+            phases.add(Collections.singletonList(new Step(step.index, step.currentCode, temporaryCode, true, cycle)));
+        }
+
+        return phases;
+    }
+}
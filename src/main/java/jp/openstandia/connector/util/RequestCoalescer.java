@@ -0,0 +1,347 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces the requests submitted concurrently into one batch request.
+ * The first caller becomes the leader, waits for the linger time to collect the other requests,
+ * then executes the batch on its own thread. The other callers wait until their result is set.
+ * When the pending requests exceed the max batch size, the leadership is passed to the next caller.
+ * With {@link #submitAsync(Object, AsyncBatchCall)}, no caller waits: a timer flushes the batch after the linger time
+ * and the result is delivered through the future.
+ *
+ * @param <T> type of the request item
+ * @param <R> type of the result
+ * @author Hiroyuki Wada
+ */
+public class RequestCoalescer<T, R> {
+
+    private static final Map<String, RequestCoalescer<?, ?>> SHARED = new ConcurrentHashMap<>();
+
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    // Don't use the monitor lock not to pin the carrier thread when running on the virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<Entry<T, R>> queue = new ArrayDeque<>();
+    private boolean leaderActive;
+    // Requests submitted asynchronously, flushed by the timer
+    private final Deque<Entry<T, R>> asyncQueue = new ArrayDeque<>();
+    private boolean flushScheduled;
+
+    public RequestCoalescer(int maxBatchSize, long lingerMillis) {
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+    }
+
+    /**
+     * Get the coalescer shared by all connector instances using the same key.
+     * The key should identify the resource and the operation (e.g. base URL + login + operation).
+     *
+     * @param key
+     * @param maxBatchSize
+     * @param lingerMillis
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, R> RequestCoalescer<T, R> shared(String key, int maxBatchSize, long lingerMillis) {
+        String sharedKey = key + ":" + maxBatchSize + ":" + lingerMillis;
+        return (RequestCoalescer<T, R>) SHARED.computeIfAbsent(sharedKey, k -> new RequestCoalescer<>(maxBatchSize, lingerMillis));
+    }
+
+    @FunctionalInterface
+    public interface BatchCall<T, R> {
+        /**
+         * Execute the batch request. The result or the error must be set to each entry.
+         * When it throws an exception, the entries which don't have the result fail with the exception.
+         *
+         * @param batch
+         */
+        void call(List<Entry<T, R>> batch);
+    }
+
+    @FunctionalInterface
+    public interface AsyncBatchCall<T, R> {
+        /**
+         * Issue the batch request without blocking. The result or the error must be set to each entry
+         * by the time the returned future completes.
+         * When it fails, the entries which don't have the result fail with the error.
+         *
+         * @param batch
+         * @return future completed when the batch request is done
+         */
+        CompletableFuture<Void> call(List<Entry<T, R>> batch);
+    }
+
+    public static class Entry<T, R> {
+        private final T item;
+        private R result;
+        private RuntimeException error;
+        private volatile boolean done;
+        private boolean leader;
+        // Only for the asynchronous request
+        private final CompletableFuture<R> future;
+
+        Entry(T item) {
+            this(item, null);
+        }
+
+        Entry(T item, CompletableFuture<R> future) {
+            this.item = item;
+            this.future = future;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        public void complete(R result) {
+            this.result = result;
+            this.done = true;
+            if (future != null) {
+                future.complete(result);
+            }
+        }
+
+        public void fail(RuntimeException error) {
+            this.error = error;
+            this.done = true;
+            if (future != null) {
+                future.completeExceptionally(error);
+            }
+        }
+
+        R get() {
+            if (error != null) {
+                throw error;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Submit the request and wait for the result.
+     * The batch call is executed by the caller who becomes the leader with its own client.
+     *
+     * @param item
+     * @param call
+     * @return
+     */
+    public R submit(T item, BatchCall<T, R> call) {
+        Entry<T, R> entry = new Entry<>(item);
+        boolean interrupted = false;
+
+        lock.lock();
+        try {
+            queue.add(entry);
+            if (!leaderActive) {
+                leaderActive = true;
+                entry.leader = true;
+            } else if (queue.size() >= maxBatchSize) {
+                // Wake up the leader lingering
+                changed.signalAll();
+            }
+            while (!entry.leader && !entry.done) {
+                try {
+                    changed.await();
+                } catch (InterruptedException e) {
+                    // The request may be already in the batch, wait for the result
+                    interrupted = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (!entry.done) {
+            lead(call);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return entry.get();
+    }
+
+    private void lead(BatchCall<T, R> call) {
+        List<Entry<T, R>> batch;
+
+        lock.lock();
+        try {
+            long deadline = System.nanoTime() + lingerNanos;
+            while (queue.size() < maxBatchSize) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    changed.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    // Stop lingering, execute the requests collected so far
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            batch = new ArrayList<>(Math.min(queue.size(), maxBatchSize));
+            while (!queue.isEmpty() && batch.size() < maxBatchSize) {
+                batch.add(queue.poll());
+            }
+
+            if (queue.isEmpty()) {
+                leaderActive = false;
+            } else {
+                // Pass the leadership for the rest of the requests
+                queue.peek().leader = true;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        RuntimeException error = null;
+        try {
+            call.call(batch);
+        } catch (RuntimeException e) {
+            error = e;
+        } finally {
+            for (Entry<T, R> e : batch) {
+                if (!e.done) {
+                    e.fail(error != null ? error : new ConnectorException("No result for the batch request"));
+                }
+            }
+            lock.lock();
+            try {
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Submit the request without waiting for the result.
+     * The batch is flushed by the timer after the linger time, or immediately when it reaches the max batch size.
+     *
+     * @param item
+     * @param call
+     * @return future of the result
+     */
+    public CompletableFuture<R> submitAsync(T item, AsyncBatchCall<T, R> call) {
+        Entry<T, R> entry = new Entry<>(item, new CompletableFuture<>());
+        List<List<Entry<T, R>>> batches = null;
+        boolean schedule = false;
+
+        lock.lock();
+        try {
+            asyncQueue.add(entry);
+            if (asyncQueue.size() >= maxBatchSize) {
+                batches = drainAsync(false);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                schedule = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (schedule) {
+            CompletableFuture.delayedExecutor(lingerNanos, TimeUnit.NANOSECONDS, Workers.executor())
+                    .execute(() -> flushAsync(call));
+        }
+        if (batches != null) {
+            batches.forEach(batch -> callAsync(batch, call));
+        }
+        return entry.future;
+    }
+
+    private void flushAsync(AsyncBatchCall<T, R> call) {
+        List<List<Entry<T, R>>> batches;
+        lock.lock();
+        try {
+            flushScheduled = false;
+            batches = drainAsync(true);
+        } finally {
+            lock.unlock();
+        }
+        batches.forEach(batch -> callAsync(batch, call));
+    }
+
+    /**
+     * Take the batches from the asynchronous queue. Must be called with the lock held.
+     *
+     * @param all true to take the last partial batch too
+     * @return
+     */
+    private List<List<Entry<T, R>>> drainAsync(boolean all) {
+        List<List<Entry<T, R>>> batches = new ArrayList<>();
+        while (asyncQueue.size() >= maxBatchSize || (all && !asyncQueue.isEmpty())) {
+            List<Entry<T, R>> batch = new ArrayList<>(Math.min(asyncQueue.size(), maxBatchSize));
+            while (!asyncQueue.isEmpty() && batch.size() < maxBatchSize) {
+                batch.add(asyncQueue.poll());
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private void callAsync(List<Entry<T, R>> batch, AsyncBatchCall<T, R> call) {
+        CompletableFuture<Void> done;
+        try {
+            done = call.call(batch);
+        } catch (RuntimeException e) {
+            done = new CompletableFuture<>();
+            done.completeExceptionally(e);
+        }
+        done.whenComplete((v, e) -> {
+            for (Entry<T, R> entry : batch) {
+                if (!entry.done) {
+                    entry.fail(toRuntimeException(e));
+                }
+            }
+        });
+    }
+
+    private static RuntimeException toRuntimeException(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        if (e == null) {
+            return new ConnectorException("No result for the batch request");
+        }
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        return new ConnectorException(e);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Backoff policy of the retry for the transient errors.
+ * The delay grows exponentially with full jitter, the Retry-After header from the server is honored,
+ * and the retries are given up when the total time exceeds the budget.
+ *
+ * @author Hiroyuki Wada
+ */
+public class RetryPolicy {
+
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long budgetMillis;
+
+    public RetryPolicy(long baseDelayMillis, long maxDelayMillis, long budgetMillis) {
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Calculate the delay before the next retry.
+     *
+     * @param attempt    number of the retries already done (0 for the first retry)
+     * @param retryAfter value of the Retry-After header, or null
+     * @return delay in milliseconds
+     */
+    public long delayMillis(int attempt, String retryAfter) {
+        long serverDelay = parseRetryAfter(retryAfter, System.currentTimeMillis());
+        if (serverDelay >= 0) {
+            return Math.min(serverDelay, maxDelayMillis);
+        }
+        return backoffMillis(attempt);
+    }
+
+    /**
+     * Full jitter: random between 0 and min(max, base * 2^attempt).
+     *
+     * @param attempt
+     * @return
+     */
+    long backoffMillis(int attempt) {
+        long cap = maxDelayMillis;
+        if (attempt < 31) {
+            cap = Math.min(maxDelayMillis, baseDelayMillis * (1L << attempt));
+        }
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * Check whether the next retry finishes within the budget.
+     *
+     * @param startNanos  time when the first attempt started ({@link System#nanoTime()})
+     * @param delayMillis delay before the next retry
+     * @return
+     */
+    public boolean isWithinBudget(long startNanos, long delayMillis) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        return elapsedMillis + delayMillis <= budgetMillis;
+    }
+
+    /**
+     * Parse the Retry-After header which is delay-seconds or HTTP-date.
+     *
+     * @param value
+     * @param nowMillis
+     * @return delay in milliseconds, or -1 if the value is absent or invalid
+     */
+    static long parseRetryAfter(String value, long nowMillis) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        String v = value.trim();
+        try {
+            long seconds = Long.parseLong(v);
+            return seconds < 0 ? -1 : TimeUnit.SECONDS.toMillis(seconds);
+        } catch (NumberFormatException ignore) {
+            // Try HTTP-date
+        }
+        try {
+            long at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - nowMillis);
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
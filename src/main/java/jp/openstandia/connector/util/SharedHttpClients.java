@@ -0,0 +1,101 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import okhttp3.OkHttpClient;
+import org.identityconnectors.common.logging.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the http clients shared by the connector instances in the JVM.
+ * The connector instances using the same endpoint and network settings share one connection pool and dispatcher,
+ * so the TLS sessions and the idle connections are reused between them.
+ * The client is reference counted and is closed when the last connector instance releases it.
+ *
+ * @author Hiroyuki Wada
+ */
+public class SharedHttpClients {
+
+    private static final Log LOG = Log.getLog(SharedHttpClients.class);
+
+    private static final Map<String, SharedClient> CLIENTS = new HashMap<>();
+
+    private SharedHttpClients() {
+    }
+
+    /**
+     * Acquire the shared http client for the key. The client is created by the factory if it doesn't exist yet.
+     * The caller must call {@link #release(String)} with the same key when the client is no longer used.
+     *
+     * @param key     key which identifies the endpoint and the network settings (don't include the credentials)
+     * @param factory
+     * @return
+     */
+    public static synchronized OkHttpClient acquire(String key, Supplier<OkHttpClient> factory) {
+        SharedClient shared = CLIENTS.get(key);
+        if (shared == null) {
+            shared = new SharedClient(factory.get());
+            CLIENTS.put(key, shared);
+            LOG.ok("Created shared http client for {0}", key);
+        }
+        shared.refCount++;
+        return shared.client;
+    }
+
+    /**
+     * Release the shared http client for the key. When it's the last reference, the connection pool is evicted
+     * and the dispatcher is shut down.
+     *
+     * @param key
+     */
+    public static void release(String key) {
+        OkHttpClient closing;
+        synchronized (SharedHttpClients.class) {
+            SharedClient shared = CLIENTS.get(key);
+            if (shared == null) {
+                return;
+            }
+            shared.refCount--;
+            if (shared.refCount > 0) {
+                return;
+            }
+            CLIENTS.remove(key);
+            closing = shared.client;
+        }
+
+        LOG.ok("Close shared http client for {0}, current: {1}, idle: {2}",
+                key, closing.connectionPool().connectionCount(), closing.connectionPool().idleConnectionCount());
+        closing.dispatcher().executorService().shutdown();
+        closing.connectionPool().evictAll();
+    }
+
+    static synchronized int referenceCount(String key) {
+        SharedClient shared = CLIENTS.get(key);
+        return shared != null ? shared.refCount : 0;
+    }
+
+    static class SharedClient {
+        final OkHttpClient client;
+        int refCount;
+
+        SharedClient(OkHttpClient client) {
+            this.client = client;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import okhttp3.HttpUrl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-parsed URL of the endpoint. The query parameters are added with the typed builder
+ * without parsing the URL for each request.
+ *
+ * @author Hiroyuki Wada
+ */
+public class UrlTemplate {
+
+    private static final Map<String, UrlTemplate> CACHE = new ConcurrentHashMap<>();
+    // The endpoints are fixed, it's only a guard for unexpected dynamic URLs
+    private static final int MAX_CACHE_SIZE = 1000;
+
+    private final HttpUrl url;
+
+    private UrlTemplate(HttpUrl url) {
+        this.url = url;
+    }
+
+    public static UrlTemplate of(String url) {
+        UrlTemplate template = CACHE.get(url);
+        if (template != null) {
+            return template;
+        }
+        template = new UrlTemplate(HttpUrl.get(url));
+        if (CACHE.size() < MAX_CACHE_SIZE) {
+            CACHE.putIfAbsent(url, template);
+        }
+        return template;
+    }
+
+    public HttpUrl url() {
+        return url;
+    }
+
+    public QueryBuilder query() {
+        return new QueryBuilder(url.newBuilder());
+    }
+
+    @Override
+    public String toString() {
+        return url.toString();
+    }
+
+    public static class QueryBuilder {
+        private final HttpUrl.Builder builder;
+
+        QueryBuilder(HttpUrl.Builder builder) {
+            this.builder = builder;
+        }
+
+        public QueryBuilder add(String name, String value) {
+            builder.addQueryParameter(name, value);
+            return this;
+        }
+
+        public QueryBuilder add(String name, int value) {
+            builder.addQueryParameter(name, Integer.toString(value));
+            return this;
+        }
+
+        /**
+         * Add the values as the array parameter (e.g. codes[0]=a&amp;codes[1]=b).
+         *
+         * @param name
+         * @param values
+         * @return
+         */
+        public QueryBuilder addIndexed(String name, List<String> values) {
+            for (int i = 0; i < values.size(); i++) {
+                builder.addQueryParameter(name + "[" + i + "]", values.get(i));
+            }
+            return this;
+        }
+
+        public QueryBuilder addAll(Map<String, String> params) {
+            if (params != null) {
+                params.forEach(builder::addQueryParameter);
+            }
+            return this;
+        }
+
+        public HttpUrl build() {
+            return builder.build();
+        }
+    }
+}
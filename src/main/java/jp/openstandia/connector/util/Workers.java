@@ -0,0 +1,40 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Provides the executor for background work of the connector (e.g. page prefetch).
+ * The executor is shared by all connector instances in the JVM.
+ * <p>
+ * On JDK 21 or later, the version in src/main/java21 which uses the virtual threads is loaded instead
+ * (multi-release jar built with the jdk21 profile).
+ *
+ * @author Hiroyuki Wada
+ */
+public class Workers {
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+    private Workers() {
+    }
+
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+}
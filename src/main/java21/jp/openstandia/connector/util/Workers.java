@@ -0,0 +1,50 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Provides the executor for background work of the connector (e.g. page prefetch).
+ * The executor is shared by all connector instances in the JVM.
+ * <p>
+ * This is the JDK 21 version in the multi-release jar. It runs each task on a new virtual thread,
+ * so the concurrency can be raised without the cost of the platform threads.
+ * Set the system property {@value #VIRTUAL_THREADS_PROPERTY} to false to use the platform threads.
+ *
+ * @author Hiroyuki Wada
+ */
+public class Workers {
+
+    static final String VIRTUAL_THREADS_PROPERTY = "jp.openstandia.connector.virtualThreads";
+
+    private static final ExecutorService EXECUTOR = newExecutor();
+
+    private Workers() {
+    }
+
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    private static ExecutorService newExecutor() {
+        if (Boolean.parseBoolean(System.getProperty(VIRTUAL_THREADS_PROPERTY, "true"))) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("connector-worker-", 1).factory());
+        }
+        return Executors.newCachedThreadPool(new DaemonThreadFactory());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import jp.openstandia.connector.util.AdaptiveRateLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveRateLimiterTest {
+
+    @Test
+    void disabled() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(0, 0);
+        assertFalse(limiter.isEnabled());
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire();
+        }
+    }
+
+    @Test
+    void decreaseOnThrottleAndIncreaseOnSuccess() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(100, 8);
+
+        limiter.acquire();
+        limiter.release(true);
+        assertEquals(50.0, limiter.getRate(), 0.001);
+        assertEquals(4.0, limiter.getConcurrencyLimit(), 0.001);
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire();
+            limiter.release(false);
+        }
+        // Recovered up to the maximum
+        assertEquals(100.0, limiter.getRate(), 0.001);
+        assertEquals(8.0, limiter.getConcurrencyLimit(), 0.001);
+    }
+
+    @Test
+    void neverBelowOne() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(4, 4);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+            limiter.release(true);
+        }
+        assertEquals(1.0, limiter.getRate(), 0.001);
+        assertEquals(1.0, limiter.getConcurrencyLimit(), 0.001);
+    }
+
+    @Test
+    void concurrencyLimit() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(0, 2);
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+
+        for (int i = 0; i < 8; i++) {
+            new Thread(() -> {
+                try {
+                    limiter.acquire();
+                    try {
+                        max.accumulateAndGet(current.incrementAndGet(), Math::max);
+                        Thread.sleep(20);
+                        current.decrementAndGet();
+                    } finally {
+                        // Don't grow the limit in this test
+                        limiter.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, max.get());
+    }
+
+    @Test
+    void rateLimit() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(20, 0);
+
+        long start = System.nanoTime();
+        // 20 for the burst, then 10 more at 20/s
+        for (int i = 0; i < 30; i++) {
+            limiter.acquire();
+            limiter.release();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis >= 400, "elapsed: " + elapsedMillis);
+    }
+
+    @Test
+    void acquireAsync() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(0, 1);
+
+        limiter.acquire();
+        CompletableFuture<Void> waiting = limiter.acquireAsync();
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+
+        // The free slot is passed to the asynchronous waiter
+        limiter.release();
+        waiting.get(5, TimeUnit.SECONDS);
+        limiter.release();
+    }
+
+    @Test
+    void asyncWaitersInOrder() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(0, 1);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+        limiter.acquire();
+        List<CompletableFuture<Void>> waiting = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            waiting.add(limiter.acquireAsync().thenRun(() -> order.add(n)));
+        }
+        // The cancelled waiter is skipped
+        CompletableFuture<Void> cancelled = limiter.acquireAsync();
+        cancelled.cancel(false);
+        CompletableFuture<Void> last = limiter.acquireAsync();
+
+        for (CompletableFuture<Void> w : waiting) {
+            assertFalse(w.isDone());
+            limiter.release();
+            w.get(5, TimeUnit.SECONDS);
+        }
+        limiter.release();
+        last.get(5, TimeUnit.SECONDS);
+        limiter.release();
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+    }
+
+    @Test
+    void asyncWaitersWithRateLimit() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(20, 0);
+
+        long start = System.nanoTime();
+        // 20 for the burst, then 10 more at 20/s
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            futures.add(limiter.acquireAsync().thenRun(limiter::release));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis >= 400, "elapsed: " + elapsedMillis);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.identityconnectors.common.security.GuardedString;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkReadTest {
+
+    private MockWebServer server;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterEach
+    void teardown() throws Exception {
+        executor.shutdownNow();
+        server.shutdown();
+    }
+
+    private KintoneRESTClient newClient(OkHttpClient httpClient) {
+        KintoneConfiguration configuration = new KintoneConfiguration();
+        configuration.setBaseURL(server.url("/").toString());
+        configuration.setLoginName("admin");
+        configuration.setPassword(new GuardedString("secret".toCharArray()));
+        configuration.setBulkReadEnabled(true);
+        configuration.setBulkReadLingerInMilliseconds(200);
+
+        KintoneRESTClient client = new KintoneRESTClient();
+        client.init("kintone", configuration, httpClient);
+        return client;
+    }
+
+    @Test
+    void invalidValueDoesNotFailOtherLookups() {
+        AtomicInteger batchRequests = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                HttpUrl url = request.getRequestUrl();
+                if (url.querySize() > 1) {
+                    batchRequests.incrementAndGet();
+                }
+                List<String> organizations = new ArrayList<>();
+                for (int i = 0; i < url.querySize(); i++) {
+                    String id = url.queryParameterValue(i);
+                    if (id.equals("invalid")) {
+                        // Kintone rejects the whole request
+                        return new MockResponse()
+                                .setResponseCode(400)
+                                .setBody("{\"code\":\"CB_VA01\",\"id\":\"1\",\"message\":\"Invalid id\"}");
+                    }
+                    organizations.add(String.format("{\"id\":\"%s\",\"code\":\"org%s\"}", id, id));
+                }
+                return new MockResponse()
+                        .setResponseCode(200)
+                        .setBody("{\"organizations\":[" + String.join(",", organizations) + "]}");
+            }
+        });
+        KintoneRESTClient client = newClient(new OkHttpClient());
+
+        CompletableFuture<KintoneOrganizationModel> org1 = CompletableFuture.supplyAsync(
+                () -> client.getOrganization(new Uid("1"), null, null), executor);
+        CompletableFuture<KintoneOrganizationModel> invalid = CompletableFuture.supplyAsync(
+                () -> client.getOrganization(new Uid("invalid"), null, null), executor);
+        CompletableFuture<KintoneOrganizationModel> org2 = CompletableFuture.supplyAsync(
+                () -> client.getOrganization(new Uid("2"), null, null), executor);
+
+        assertEquals("org1", org1.join().code);
+        assertEquals("org2", org2.join().code);
+        assertThrows(CompletionException.class, invalid::join);
+        assertEquals(1, batchRequests.get());
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.identityconnectors.common.security.GuardedString;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+import org.identityconnectors.framework.common.exceptions.InvalidAttributeValueException;
+import org.identityconnectors.framework.common.exceptions.UnknownUidException;
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkWriteTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private MockWebServer server;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterEach
+    void teardown() throws Exception {
+        executor.shutdownNow();
+        server.shutdown();
+    }
+
+    private KintoneRESTClient newClient(OkHttpClient httpClient) {
+        KintoneConfiguration configuration = new KintoneConfiguration();
+        configuration.setBaseURL(server.url("/").toString());
+        configuration.setLoginName("admin");
+        configuration.setPassword(new GuardedString("secret".toCharArray()));
+        configuration.setBulkWriteEnabled(true);
+        configuration.setBulkWriteLingerInMilliseconds(200);
+
+        KintoneRESTClient client = new KintoneRESTClient();
+        client.init("kintone", configuration, httpClient);
+        return client;
+    }
+
+    private static MockResponse badRequest(String message) {
+        return new MockResponse()
+                .setResponseCode(400)
+                .setBody("{\"code\":\"CB_VA01\",\"id\":\"1\",\"message\":\"" + message + "\"}");
+    }
+
+    /**
+     * Simulate the rename API of kintone. All renames in one request are applied or none of them.
+     *
+     * @param codes  code -> id of the users
+     * @param reject rename rejected by the server (current code, new code)
+     */
+    private static Dispatcher renameDispatcher(Map<String, String> codes, BiPredicate<String, String> reject) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (!request.getMethod().equals("PUT") || !request.getPath().startsWith("/v1/users/codes.json")) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                try {
+                    JsonNode renames = MAPPER.readTree(request.getBody().readUtf8()).get("codes");
+                    synchronized (codes) {
+                        Map<String, String> updated = new HashMap<>(codes);
+                        for (JsonNode rename : renames) {
+                            String currentCode = rename.get("currentCode").asText();
+                            String newCode = rename.get("newCode").asText();
+                            if (reject.test(currentCode, newCode) || !updated.containsKey(currentCode)) {
+                                return badRequest("Cannot rename " + currentCode);
+                            }
+                            updated.put(newCode, updated.remove(currentCode));
+                        }
+                        // The codes must be unique after the renames
+                        if (updated.size() != codes.size()) {
+                            return badRequest("Duplicate code");
+                        }
+                        codes.clear();
+                        codes.putAll(updated);
+                    }
+                    return new MockResponse().setResponseCode(200).setBody("{}");
+                } catch (IOException e) {
+                    return new MockResponse().setResponseCode(500);
+                }
+            }
+        };
+    }
+
+    /**
+     * Simulate the create API and the lookup by the codes of kintone.
+     *
+     * @param path    path of the endpoint
+     * @param field   field name of the array in the request and the response
+     * @param created code -> id of the created objects
+     * @param hidden  codes which the lookup doesn't return
+     * @param lookups number of the codes in each lookup request
+     */
+    private static Dispatcher createDispatcher(String path, String field, Map<String, String> created, Set<String> hidden,
+                                               List<Integer> lookups) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (!request.getPath().startsWith(path)) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                if (request.getMethod().equals("POST")) {
+                    try {
+                        JsonNode objects = MAPPER.readTree(request.getBody().readUtf8()).get(field);
+                        synchronized (created) {
+                            // All objects are created or none of them
+                            for (JsonNode object : objects) {
+                                String code = object.get("code").asText();
+                                if (created.containsKey(code)) {
+                                    return badRequest("Duplicate code " + code);
+                                }
+                            }
+                            objects.forEach(object -> created.put(object.get("code").asText(), String.valueOf(created.size() + 1)));
+                        }
+                        return new MockResponse().setResponseCode(200).setBody("{}");
+                    } catch (IOException e) {
+                        return new MockResponse().setResponseCode(500);
+                    }
+                }
+
+                HttpUrl url = request.getRequestUrl();
+                lookups.add(url.querySize());
+                List<String> found = new ArrayList<>();
+                synchronized (created) {
+                    for (int i = 0; i < url.querySize(); i++) {
+                        String code = url.queryParameterValue(i);
+                        if (created.containsKey(code) && !hidden.contains(code)) {
+                            found.add("{\"id\":\"" + created.get(code) + "\",\"code\":\"" + code + "\"}");
+                        }
+                    }
+                }
+                return new MockResponse()
+                        .setResponseCode(200)
+                        .setBody("{\"" + field + "\":[" + String.join(",", found) + "]}");
+            }
+        };
+    }
+
+    /**
+     * Simulate the delete API and the lookup by the ids of kintone.
+     * The delete is rejected if one of the codes doesn't exist.
+     *
+     * @param codes   code -> id of the users
+     * @param lookups number of the ids in each lookup request
+     */
+    private static Dispatcher deleteDispatcher(Map<String, String> codes, List<Integer> lookups) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (!request.getPath().startsWith("/v1/users.json")) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                if (request.getMethod().equals("DELETE")) {
+                    try {
+                        JsonNode deleted = MAPPER.readTree(request.getBody().readUtf8()).get("codes");
+                        synchronized (codes) {
+                            for (JsonNode code : deleted) {
+                                if (!codes.containsKey(code.asText())) {
+                                    return badRequest("Not found " + code.asText());
+                                }
+                            }
+                            deleted.forEach(code -> codes.remove(code.asText()));
+                        }
+                        return new MockResponse().setResponseCode(200).setBody("{}");
+                    } catch (IOException e) {
+                        return new MockResponse().setResponseCode(500);
+                    }
+                }
+
+                HttpUrl url = request.getRequestUrl();
+                lookups.add(url.querySize());
+                List<String> found = new ArrayList<>();
+                synchronized (codes) {
+                    for (int i = 0; i < url.querySize(); i++) {
+                        String id = url.queryParameterValue(i);
+                        codes.forEach((code, v) -> {
+                            if (v.equals(id)) {
+                                found.add("{\"id\":\"" + id + "\",\"code\":\"" + code + "\"}");
+                            }
+                        });
+                    }
+                }
+                return new MockResponse()
+                        .setResponseCode(200)
+                        .setBody("{\"users\":[" + String.join(",", found) + "]}");
+            }
+        };
+    }
+
+    private static KintoneUserModel user(String code) {
+        KintoneUserModel user = new KintoneUserModel();
+        user.code = code;
+        user.name = code;
+        return user;
+    }
+
+    private static KintoneOrganizationModel organization(String code) {
+        KintoneOrganizationModel organization = new KintoneOrganizationModel();
+        organization.code = code;
+        organization.name = code;
+        return organization;
+    }
+
+    private static Map<String, String> users(String... codeAndIds) {
+        Map<String, String> codes = new HashMap<>();
+        for (int i = 0; i < codeAndIds.length; i += 2) {
+            codes.put(codeAndIds[i], codeAndIds[i + 1]);
+        }
+        return codes;
+    }
+
+    @Test
+    void swap() throws Exception {
+        Map<String, String> codes = users("a", "1", "b", "2");
+        server.setDispatcher(renameDispatcher(codes, (currentCode, newCode) -> false));
+
+        KintoneRESTClient client = newClient(new OkHttpClient());
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(
+                () -> client.renameUser(new Uid("1", new Name("a")), "b"), executor);
+        CompletableFuture<Void> second = CompletableFuture.runAsync(
+                () -> client.renameUser(new Uid("2", new Name("b")), "a"), executor);
+
+        first.get();
+        second.get();
+
+        assertEquals(users("b", "1", "a", "2"), codes);
+        // Through the temporary code
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    void swapFailureRestoresCodes() throws Exception {
+        Map<String, String> codes = users("a", "1", "b", "2", "x", "3");
+        // The last step of the swap fails, but the temporary code can be reverted
+        Map<String, String> temporaryCodes = new HashMap<>();
+        server.setDispatcher(renameDispatcher(codes, (currentCode, newCode) -> {
+            if (newCode.startsWith("tmp-")) {
+                temporaryCodes.put(newCode, currentCode);
+                return false;
+            }
+            return currentCode.startsWith("tmp-") && !newCode.equals(temporaryCodes.get(currentCode));
+        }));
+
+        KintoneRESTClient client = newClient(new OkHttpClient());
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(
+                () -> client.renameUser(new Uid("1", new Name("a")), "b"), executor);
+        CompletableFuture<Void> second = CompletableFuture.runAsync(
+                () -> client.renameUser(new Uid("2", new Name("b")), "a"), executor);
+        CompletableFuture<Void> other = CompletableFuture.runAsync(
+                () -> client.renameUser(new Uid("3", new Name("x")), "y"), executor);
+
+        ExecutionException e1 = assertThrows(ExecutionException.class, first::get);
+        ExecutionException e2 = assertThrows(ExecutionException.class, second::get);
+        other.get();
+
+        // The rename rejected by kintone and the other rename of the cycle
+        assertTrue(e1.getCause() instanceof InvalidAttributeValueException || e2.getCause() instanceof InvalidAttributeValueException);
+
+        // No temporary code is left and the independent rename is applied
+        assertEquals(users("a", "1", "b", "2", "y", "3"), codes);
+        // 4 renames until the failure, then the 2 applied steps of the cycle are undone
+        assertEquals(6, server.getRequestCount());
+    }
+
+    @Test
+    void resolveCreatedIdsAtOnce() throws Exception {
+        Map<String, String> created = new HashMap<>();
+        List<Integer> lookups = Collections.synchronizedList(new ArrayList<>());
+        server.setDispatcher(createDispatcher("/v1/organizations.json", "organizations", created,
+                Collections.emptySet(), lookups));
+
+        KintoneRESTClient client = newClient(new OkHttpClient());
+
+        List<CompletableFuture<Uid>> uids = new ArrayList<>();
+        for (String code : Arrays.asList("org1", "org2", "org3")) {
+            uids.add(CompletableFuture.supplyAsync(() -> client.createOrganization(organization(code)), executor));
+        }
+
+        for (CompletableFuture<Uid> uid : uids) {
+            Uid result = uid.get();
+            assertEquals(created.get(result.getNameHintValue()), result.getUidValue());
+        }
+        // 3 creates and 1 lookup for all the ids
+        assertEquals(Collections.singletonList(3), lookups);
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    void createdObjectNotFound() throws Exception {
+        Map<String, String> created = new HashMap<>();
+        List<Integer> lookups = Collections.synchronizedList(new ArrayList<>());
+        // kintone doesn't return org2 just after the create
+        server.setDispatcher(createDispatcher("/v1/organizations.json", "organizations", created,
+                Collections.singleton("org2"), lookups));
+
+        KintoneRESTClient client = newClient(new OkHttpClient());
+
+        CompletableFuture<Uid> found = CompletableFuture.supplyAsync(
+                () -> client.createOrganization(organization("org1")), executor);
+        CompletableFuture<Uid> notFound = CompletableFuture.supplyAsync(
+                () -> client.createOrganization(organization("org2")), executor);
+
+        Uid uid = found.get();
+        assertEquals(created.get("org1"), uid.getUidValue());
+        assertEquals("org1", uid.getNameHintValue());
+
+        ExecutionException e = assertThrows(ExecutionException.class, notFound::get);
+        assertTrue(e.getCause() instanceof ConnectorIOException);
+        assertTrue(e.getCause().getMessage().contains("Cannot find created"), e.getCause().getMessage());
+        assertEquals(Collections.singletonList(2), lookups);
+    }
+
+    @Test
+    void deleteInBulk() throws Exception {
+        Map<String, String> codes = users("a", "1", "b", "2", "c", "3");
+        List<Integer> lookups = Collections.synchronizedList(new ArrayList<>());
+        server.setDispatcher(deleteDispatcher(codes, lookups));
+
+        KintoneRESTClient client = newClient(new OkHttpClient());
+
+        List<CompletableFuture<Void>> deletes = new ArrayList<>();
+        for (Uid uid : Arrays.asList(new Uid("1", new Name("a")), new Uid("2"), new Uid("3", new Name("c")))) {
+            deletes.add(CompletableFuture.runAsync(() -> client.deleteUser(uid), executor));
+        }
+        for (CompletableFuture<Void> delete : deletes) {
+            delete.get();
+        }
+
+        assertTrue(codes.isEmpty());
+        // Only the code of the uid without the name hint is looked up by ids=
+        assertEquals(Collections.singletonList(1), lookups);
+        // 1 lookup and 1 delete for all users
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void deleteOneByOneWhenBulkDeleteRejected() throws Exception {
+        Map<String, String> codes = users("a", "1", "b", "2");
+        List<Integer> lookups = Collections.synchronizedList(new ArrayList<>());
+        server.setDispatcher(deleteDispatcher(codes, lookups));
+
+        KintoneRESTClient client = newClient(new OkHttpClient());
+
+        CompletableFuture<Void> a = CompletableFuture.runAsync(() -> client.deleteUser(new Uid("1", new Name("a"))), executor);
+        CompletableFuture<Void> b = CompletableFuture.runAsync(() -> client.deleteUser(new Uid("2", new Name("b"))), executor);
+        // Already deleted
+        CompletableFuture<Void> x = CompletableFuture.runAsync(() -> client.deleteUser(new Uid("9", new Name("x"))), executor);
+        // The id doesn't exist
+        CompletableFuture<Void> unknown = CompletableFuture.runAsync(() -> client.deleteUser(new Uid("8")), executor);
+
+        a.get();
+        b.get();
+        ExecutionException xError = assertThrows(ExecutionException.class, x::get);
+        assertTrue(xError.getCause() instanceof InvalidAttributeValueException, xError.getCause().toString());
+        ExecutionException unknownError = assertThrows(ExecutionException.class, unknown::get);
+        assertTrue(unknownError.getCause() instanceof UnknownUidException, unknownError.getCause().toString());
+
+        assertTrue(codes.isEmpty());
+        // 1 lookup, the rejected bulk delete, then 3 deletes one by one
+        assertEquals(Collections.singletonList(1), lookups);
+        assertEquals(5, server.getRequestCount());
+    }
+
+    @Test
+    void createUsersInBulk() throws Exception {
+        Map<String, String> created = new HashMap<>();
+        List<Integer> lookups = Collections.synchronizedList(new ArrayList<>());
+        server.setDispatcher(createDispatcher("/v1/users.json", "users", created, Collections.emptySet(), lookups));
+
+        KintoneRESTClient client = newClient(new OkHttpClient());
+
+        List<CompletableFuture<Uid>> uids = new ArrayList<>();
+        for (String code : Arrays.asList("user1", "user2", "user3")) {
+            uids.add(CompletableFuture.supplyAsync(() -> client.createUser(user(code)), executor));
+        }
+        for (CompletableFuture<Uid> uid : uids) {
+            Uid result = uid.get();
+            assertEquals(created.get(result.getNameHintValue()), result.getUidValue());
+        }
+
+        assertEquals(3, created.size());
+        // 1 create and 1 lookup for all users
+        assertEquals(Collections.singletonList(3), lookups);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void createUsersOneByOneWhenBulkCreateRejected() throws Exception {
+        Map<String, String> created = users("dup", "1");
+        List<Integer> lookups = Collections.synchronizedList(new ArrayList<>());
+        server.setDispatcher(createDispatcher("/v1/users.json", "users", created, Collections.emptySet(), lookups));
+
+        KintoneRESTClient client = newClient(new OkHttpClient());
+
+        CompletableFuture<Uid> user1 = CompletableFuture.supplyAsync(() -> client.createUser(user("user1")), executor);
+        CompletableFuture<Uid> dup = CompletableFuture.supplyAsync(() -> client.createUser(user("dup")), executor);
+        CompletableFuture<Uid> user2 = CompletableFuture.supplyAsync(() -> client.createUser(user("user2")), executor);
+
+        assertEquals(created.get("user1"), user1.get().getUidValue());
+        assertEquals(created.get("user2"), user2.get().getUidValue());
+        ExecutionException e = assertThrows(ExecutionException.class, dup::get);
+        assertTrue(e.getCause() instanceof InvalidAttributeValueException, e.getCause().toString());
+
+        // The rejected bulk create, then 3 creates one by one and the lookups of the created users
+        assertEquals(3, created.size());
+        assertEquals(4 + lookups.size(), server.getRequestCount());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import jp.openstandia.connector.util.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    void disabled() {
+        CircuitBreaker breaker = new CircuitBreaker(0, 0, 0, 0);
+
+        for (int i = 0; i < 100; i++) {
+            breaker.record(SLOW, true);
+        }
+        assertTrue(breaker.allowRequest(() -> CompletableFuture.completedFuture(false)).join());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void openOnFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker(50, 0, 5000, 60000);
+
+        // Not evaluated until the minimum calls
+        for (int i = 0; i < 5; i++) {
+            breaker.record(FAST, true);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        for (int i = 0; i < 5; i++) {
+            breaker.record(FAST, false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Fail fast without probing
+        AtomicInteger probes = new AtomicInteger();
+        assertFalse(breaker.allowRequest(() -> CompletableFuture.completedFuture(probes.incrementAndGet() > 0)).join());
+        assertEquals(0, probes.get());
+    }
+
+    @Test
+    void openOnSlowCallRate() {
+        CircuitBreaker breaker = new CircuitBreaker(0, 80, 5000, 60000);
+
+        for (int i = 0; i < 2; i++) {
+            breaker.record(FAST, false);
+        }
+        for (int i = 0; i < 8; i++) {
+            breaker.record(SLOW, false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void stayClosedUnderThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker(50, 80, 5000, 60000);
+
+        for (int i = 0; i < 100; i++) {
+            breaker.record(FAST, i % 3 == 0);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void probeAfterOpenDuration() {
+        CircuitBreaker breaker = new CircuitBreaker(50, 0, 5000, 0);
+
+        for (int i = 0; i < 10; i++) {
+            breaker.record(FAST, true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Probe fails, open again
+        assertFalse(breaker.allowRequest(() -> CompletableFuture.completedFuture(false)).join());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Probe throws, open again
+        assertFalse(breaker.allowRequest(() -> {
+            throw new IllegalStateException("down");
+        }).join());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Probe completes exceptionally, open again
+        CompletableFuture<Boolean> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("down"));
+        assertFalse(breaker.allowRequest(() -> failed).join());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Probe succeeds, closed with the fresh window
+        assertTrue(breaker.allowRequest(() -> CompletableFuture.completedFuture(true)).join());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.record(FAST, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void rejectWhileProbing() {
+        CircuitBreaker breaker = new CircuitBreaker(50, 0, 5000, 0);
+
+        for (int i = 0; i < 10; i++) {
+            breaker.record(FAST, true);
+        }
+
+        CompletableFuture<Boolean> probing = new CompletableFuture<>();
+        CompletableFuture<Boolean> first = breaker.allowRequest(() -> probing);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(first.isDone());
+
+        // Another caller isn't permitted while the probe is in flight
+        assertFalse(breaker.allowRequest(() -> CompletableFuture.completedFuture(true)).join());
+
+        probing.complete(true);
+        assertTrue(first.join());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.openstandia.connector.util.JsonCodec;
+import org.identityconnectors.common.logging.Log;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the decoding of the 100 users page through the same streaming path as the search
+ * ({@link KintoneRESTClient#readList}): the full binding with the codec when all attributes are requested,
+ * and {@link KintoneUserReader} when only some attributes are requested.
+ * The binding of the whole list with ObjectMapper is measured as the baseline.
+ * It's skipped in the normal build, run it with:
+ * <pre>
+ * mvn test -Dtest=JsonCodecBenchmarkTest -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JsonCodecBenchmarkTest {
+
+    private static final Log LOG = Log.getLog(JsonCodecBenchmarkTest.class);
+
+    private static final int PAGE_SIZE = 100;
+    private static final int WARMUP = 5000;
+    private static final int ITERATIONS = 20000;
+
+    static class DecodingClient extends KintoneRESTClient {
+        DecodingClient(JsonCodec json) {
+            this.json = json;
+        }
+
+        List<KintoneUserModel> decode(byte[] page, Set<String> fetchFieldsSet) throws IOException {
+            List<KintoneUserModel> users = new ArrayList<>(PAGE_SIZE);
+            readList(new ByteArrayInputStream(page), "users", userReader(fetchFieldsSet), users::add);
+            return users;
+        }
+    }
+
+    interface Decoder {
+        List<KintoneUserModel> decode(byte[] page) throws IOException;
+    }
+
+    @Test
+    void usersPage() throws Exception {
+        byte[] page = usersPage(PAGE_SIZE);
+
+        ObjectMapper mapper = new ObjectMapper();
+        DecodingClient standard = new DecodingClient(JsonCodec.standard());
+        // Typical attributes to get when the IDM reads the accounts for the reconciliation
+        Set<String> someFields = new HashSet<>(Arrays.asList("name", "email", "valid", "customItem.item1"));
+
+        Decoder[] decoders = {
+                p -> mapper.readValue(p, KintoneRESTClient.ListBody.class).users,
+                p -> standard.decode(p, null),
+                p -> standard.decode(p, someFields),
+        };
+        String[] names = {
+                "ObjectMapper.readValue (baseline)",
+                "readList, all attributes",
+                "readList, 4 attributes (KintoneUserReader)",
+        };
+
+        // Warm up all of them first not to favor the later one
+        for (Decoder decoder : decoders) {
+            measure(page, decoder, WARMUP);
+        }
+
+        LOG.info("Decoding the {0} users page ({1} bytes), {2} iterations", PAGE_SIZE, page.length, ITERATIONS);
+        long baseline = 0;
+        for (int i = 0; i < decoders.length; i++) {
+            long nanos = measure(page, decoders[i], ITERATIONS);
+            if (i == 0) {
+                baseline = nanos;
+            }
+            LOG.info("  {0}: {1} us/op ({2}x)", names[i], String.format("%.1f", nanos / 1000.0 / ITERATIONS),
+                    String.format("%.2f", (double) baseline / nanos));
+        }
+    }
+
+    private long measure(byte[] page, Decoder decoder, int iterations) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            List<KintoneUserModel> users = decoder.decode(page);
+            assertEquals(PAGE_SIZE, users.size());
+            assertEquals("user" + (PAGE_SIZE - 1), users.get(PAGE_SIZE - 1).code);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private byte[] usersPage(int size) throws IOException {
+        KintoneRESTClient.ListBody body = new KintoneRESTClient.ListBody();
+        body.users = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            KintoneUserModel user = new KintoneUserModel();
+            user.id = String.valueOf(1000 + i);
+            user.code = "user" + i;
+            user.ctime = "2023-01-01T00:00:00Z";
+            user.mtime = "2023-01-02T00:00:00Z";
+            user.valid = true;
+            user.name = "User " + i;
+            user.surName = "Surname" + i;
+            user.givenName = "Given" + i;
+            user.localName = "ユーザー" + i;
+            user.localNameLocale = "ja";
+            user.timezone = "Asia/Tokyo";
+            user.locale = "ja";
+            user.description = "Description of the user " + i;
+            user.phone = "03-0000-" + i;
+            user.email = "user" + i + "@example.com";
+            user.employeeNumber = "E" + i;
+            user.joinDate = "2020-04-01";
+            user.primaryOrganization = "10";
+            user.sortOrder = i;
+            user.customItemValues = Arrays.asList(customItem("item1", "value" + i), customItem("item2", "value" + i));
+            body.users.add(user);
+        }
+        return new ObjectMapper().writeValueAsBytes(body);
+    }
+
+    private KintoneUserModel.CustomItem customItem(String code, String value) {
+        KintoneUserModel.CustomItem item = new KintoneUserModel.CustomItem();
+        item.code = code;
+        item.value = value;
+        return item;
+    }
+}
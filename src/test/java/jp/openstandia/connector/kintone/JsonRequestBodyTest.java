@@ -0,0 +1,57 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.openstandia.connector.util.JsonCodec;
+import jp.openstandia.connector.util.JsonRequestBody;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonRequestBodyTest {
+
+    @Test
+    void sameAsString() throws Exception {
+        KintoneRESTClient.ListBody users = new KintoneRESTClient.ListBody();
+        users.users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            KintoneUserModel user = new KintoneUserModel();
+            user.code = "user" + i;
+            user.name = "ユーザー" + i;
+            users.users.add(user);
+        }
+
+        JsonRequestBody body = JsonRequestBody.create(JsonCodec.standard(), users);
+
+        String expected = new ObjectMapper().writeValueAsString(users);
+
+        // Sent with the Content-Length header, not chunked
+        assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, body.contentLength());
+
+        // Can be written again (e.g. retry)
+        for (int i = 0; i < 2; i++) {
+            Buffer buffer = new Buffer();
+            body.writeTo(buffer);
+            assertEquals(expected, buffer.readUtf8());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KintoneUserReaderTest {
+
+    private static final String USER = "{" +
+            "\"id\":\"10\"," +
+            "\"code\":\"foo\"," +
+            "\"ctime\":\"2021-01-01T00:00:00Z\"," +
+            "\"valid\":true," +
+            "\"name\":\"Foo\"," +
+            "\"surNameReading\":\"ふー\"," +
+            "\"phone\":\"000-0000-0000\"," +
+            "\"sortOrder\":5," +
+            "\"unknown\":{\"nested\":[1,2,{\"x\":\"y\"}]}," +
+            "\"customItemValues\":[{\"code\":\"a\",\"value\":\"A\"},{\"code\":\"b\",\"value\":\"B\"}]" +
+            "}";
+
+    private KintoneUserModel read(String... fields) throws IOException {
+        Set<String> fetchFieldsSet = new HashSet<>(Arrays.asList(fields));
+        try (JsonParser p = new JsonFactory().createParser(USER)) {
+            p.nextToken();
+            KintoneUserModel user = new KintoneUserReader(fetchFieldsSet).read(p);
+            assertNull(p.nextToken());
+            return user;
+        }
+    }
+
+    @Test
+    void onlyIdAndCode() throws IOException {
+        KintoneUserModel user = read("id", "code");
+
+        assertEquals("10", user.id);
+        assertEquals("foo", user.code);
+        assertNull(user.valid);
+        assertNull(user.name);
+        assertNull(user.phone);
+        assertNull(user.sortOrder);
+        assertNull(user.customItemValues);
+    }
+
+    @Test
+    void requestedFields() throws IOException {
+        KintoneUserModel user = read("id", "code", "valid", "name", "surNameReading", "sortOrder", "ctime");
+
+        assertEquals("10", user.id);
+        assertEquals("foo", user.code);
+        assertEquals(Boolean.TRUE, user.valid);
+        assertEquals("Foo", user.name);
+        assertEquals("ふー", user.surNameReading);
+        assertEquals(5, user.sortOrder);
+        assertEquals("2021-01-01T00:00:00Z", user.ctime);
+        assertNull(user.phone);
+        assertNull(user.customItemValues);
+    }
+
+    @Test
+    void requestedCustomItems() throws IOException {
+        KintoneUserModel user = read("id", "code", "customItem.b");
+
+        assertEquals(1, user.customItemValues.size());
+        assertNull(user.getCustomItem("a"));
+        assertEquals("B", user.getCustomItem("b"));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.identityconnectors.common.security.GuardedString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MembershipIndexTest {
+
+    private MockWebServer server;
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @AfterEach
+    void teardown() throws Exception {
+        server.shutdown();
+    }
+
+    private KintoneRESTClient newClient(int concurrency, String... ignoreGroup) {
+        KintoneConfiguration configuration = new KintoneConfiguration();
+        configuration.setBaseURL(server.url("/").toString());
+        configuration.setLoginName("admin");
+        configuration.setPassword(new GuardedString("secret".toCharArray()));
+        configuration.setQueryConcurrency(concurrency);
+        // Count only the first page of each walk
+        configuration.setQueryLookAheadPages(0);
+        configuration.setIgnoreGroup(ignoreGroup);
+
+        KintoneRESTClient client = new KintoneRESTClient();
+        client.init("kintone", configuration, new OkHttpClient());
+        return client;
+    }
+
+    /**
+     * Simulate the list API and the members API of kintone. The members response is delayed to overlap the walks.
+     *
+     * @param listPath    path of the list API
+     * @param listField   field name of the array in the list response
+     * @param membersPath path of the members API
+     * @param members     code -> members JSON array, the iteration order is the list order
+     * @param delays      code -> delay of the members response in milliseconds
+     * @param maxInFlight max number of the members requests in flight
+     */
+    private static Dispatcher membersDispatcher(String listPath, String listField, String membersPath,
+                                                Map<String, String> members, Map<String, Long> delays,
+                                                AtomicInteger maxInFlight) {
+        AtomicInteger inFlight = new AtomicInteger();
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                String offset = request.getRequestUrl().queryParameter("offset");
+                boolean firstPage = offset == null || offset.equals("0");
+
+                if (request.getPath().startsWith(listPath)) {
+                    String list = !firstPage ? "" : members.keySet().stream()
+                            .map(code -> "{\"id\":\"" + code.hashCode() + "\",\"code\":\"" + code + "\"}")
+                            .collect(Collectors.joining(","));
+                    return new MockResponse().setResponseCode(200)
+                            .setBody("{\"" + listField + "\":[" + list + "]}");
+                }
+                if (request.getPath().startsWith(membersPath)) {
+                    String code = request.getRequestUrl().queryParameter("code");
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(delays.getOrDefault(code, 100L));
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    return new MockResponse().setResponseCode(200)
+                            .setBody(firstPage ? members.get(code) : "{}");
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        };
+    }
+
+    private static String userTitles(String... userAndTitles) {
+        return "{\"userTitles\":[" + Arrays.stream(userAndTitles)
+                .map(s -> {
+                    String[] split = s.split("#");
+                    String title = split.length > 1 ?
+                            "{\"id\":\"1\",\"code\":\"" + split[1] + "\",\"name\":\"" + split[1] + "\"}" : "null";
+                    return "{\"user\":{\"id\":\"1\",\"code\":\"" + split[0] + "\"},\"title\":" + title + "}";
+                })
+                .collect(Collectors.joining(",")) + "]}";
+    }
+
+    private static String users(String... codes) {
+        return "{\"users\":[" + Arrays.stream(codes)
+                .map(code -> "{\"id\":\"1\",\"code\":\"" + code + "\"}")
+                .collect(Collectors.joining(",")) + "]}";
+    }
+
+    @Test
+    void organizationsIndexConcurrently() {
+        Map<String, String> members = new LinkedHashMap<>();
+        members.put("org1", userTitles("foo", "bar#manager"));
+        members.put("org2", userTitles("bar"));
+        members.put("org3", userTitles("foo#leader"));
+        members.put("org4", userTitles());
+        members.put("org5", userTitles("baz"));
+        members.put("org6", userTitles("foo"));
+        // The first organization finishes last
+        Map<String, Long> delays = new HashMap<>();
+        delays.put("org1", 300L);
+
+        AtomicInteger maxInFlight = new AtomicInteger();
+        server.setDispatcher(membersDispatcher("/v1/organizations.json", "organizations",
+                "/v1/organization/users.json", members, delays, maxInFlight));
+
+        Map<String, List<String>> index = newClient(3).getOrganizationsIndex(100);
+
+        assertEquals(Arrays.asList("org1", "org3#leader", "org6"), index.get("foo"));
+        assertEquals(Arrays.asList("org1#manager", "org2"), index.get("bar"));
+        assertEquals(Collections.singletonList("org5"), index.get("baz"));
+        assertEquals(3, index.size());
+        assertTrue(maxInFlight.get() > 1, "The organizations weren't walked concurrently");
+        assertTrue(maxInFlight.get() <= 3, "Exceeded the query concurrency: " + maxInFlight.get());
+    }
+
+    @Test
+    void organizationsIndexSequentially() {
+        Map<String, String> members = new LinkedHashMap<>();
+        members.put("org1", userTitles("foo"));
+        members.put("org2", userTitles("foo#leader"));
+        members.put("org3", userTitles("bar"));
+
+        AtomicInteger maxInFlight = new AtomicInteger();
+        server.setDispatcher(membersDispatcher("/v1/organizations.json", "organizations",
+                "/v1/organization/users.json", members, Collections.emptyMap(), maxInFlight));
+
+        Map<String, List<String>> index = newClient(1).getOrganizationsIndex(100);
+
+        assertEquals(Arrays.asList("org1", "org2#leader"), index.get("foo"));
+        assertEquals(Collections.singletonList("org3"), index.get("bar"));
+        assertEquals(1, maxInFlight.get());
+    }
+
+    @Test
+    void groupsIndexConcurrently() {
+        Map<String, String> members = new LinkedHashMap<>();
+        members.put("group1", users("foo", "bar"));
+        members.put("everyone", users("foo", "bar", "baz"));
+        members.put("group2", users("bar"));
+        members.put("NotManagedGroup", users("foo"));
+        members.put("group3", users("foo"));
+        members.put("group4", users("baz"));
+        members.put("group5", users());
+        // The first group finishes last
+        Map<String, Long> delays = new HashMap<>();
+        delays.put("group1", 300L);
+
+        AtomicInteger maxInFlight = new AtomicInteger();
+        server.setDispatcher(membersDispatcher("/v1/groups.json", "groups",
+                "/v1/group/users.json", members, delays, maxInFlight));
+
+        Map<String, List<String>> index = newClient(3, "NotManagedGroup").getGroupsIndex(100);
+
+        assertEquals(Arrays.asList("group1", "group3"), index.get("foo"));
+        assertEquals(Arrays.asList("group1", "group2"), index.get("bar"));
+        assertEquals(Collections.singletonList("group4"), index.get("baz"));
+        assertEquals(3, index.size());
+        assertTrue(maxInFlight.get() > 1, "The groups weren't walked concurrently");
+        assertTrue(maxInFlight.get() <= 3, "Exceeded the query concurrency: " + maxInFlight.get());
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import jp.openstandia.connector.util.AbstractRESTClient;
+import jp.openstandia.connector.util.QueryHandler;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PagingTest {
+
+    static class PagingClient extends AbstractRESTClient<KintoneConfiguration> {
+        PagingClient() {
+        }
+
+        PagingClient(int lookAhead) {
+            this.pageLookAhead = lookAhead;
+        }
+
+        @Override
+        public void test() {
+        }
+
+        <T> int scan(QueryHandler<T> handler, int pageSize, int concurrency, BiFunction<Integer, Integer, List<T>> apiCall) {
+            return getAll(handler, pageSize, concurrency, apiCall);
+        }
+
+        <T> int scanPages(QueryHandler<T> handler, int pageSize, int concurrency,
+                          BiFunction<Integer, Integer, CompletableFuture<Response>> pageCall, PageReader<T> reader) {
+            return getAll(handler, pageSize, concurrency, pageCall, reader);
+        }
+    }
+
+    private static Response page(int start, int size) {
+        String body = IntStream.range(start, start + size).mapToObj(String::valueOf).collect(Collectors.joining(","));
+        return new Response.Builder()
+                .request(new Request.Builder().url("http://localhost/").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(body, MediaType.get("text/plain")))
+                .build();
+    }
+
+    private BiFunction<Integer, Integer, List<Integer>> pages(int total, AtomicInteger calls) {
+        return (start, size) -> {
+            calls.incrementAndGet();
+            if (start >= total) {
+                return Collections.emptyList();
+            }
+            try {
+                // Make the later pages finish first
+                Thread.sleep(Math.max(0, 50 - start));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return IntStream.range(start, Math.min(start + size, total)).boxed().collect(Collectors.toList());
+        };
+    }
+
+    @Test
+    void sequential() {
+        AtomicInteger calls = new AtomicInteger();
+        List<Integer> results = new ArrayList<>();
+
+        int count = new PagingClient(0).scan(results::add, 10, 1, pages(35, calls));
+
+        assertEquals(35, count);
+        assertEquals(IntStream.range(0, 35).boxed().collect(Collectors.toList()), results);
+        // The 4th page is short, no need to request the 5th page
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void sequentialHasOnePageInFlight() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        BiFunction<Integer, Integer, List<Integer>> pages = pages(35, new AtomicInteger());
+
+        new PagingClient(0).scan(i -> true, 10, 1, (start, size) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                return pages.apply(start, size);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+
+        assertEquals(1, maxInFlight.get());
+    }
+
+    @Test
+    void sequentialFullLastPage() {
+        AtomicInteger calls = new AtomicInteger();
+        List<Integer> results = new ArrayList<>();
+
+        int count = new PagingClient(0).scan(results::add, 10, 1, pages(30, calls));
+
+        assertEquals(30, count);
+        // The empty page is needed to find the end
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void lookAheadByDefault() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<Integer> results = new ArrayList<>();
+        BiFunction<Integer, Integer, List<Integer>> pages = pages(35, new AtomicInteger());
+
+        // The next page is fetched while the current page is handled, even with the concurrency 1
+        int count = new PagingClient().scan(results::add, 10, 1, (start, size) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                return pages.apply(start, size);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+
+        assertEquals(35, count);
+        assertEquals(IntStream.range(0, 35).boxed().collect(Collectors.toList()), results);
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    void stopCancelsPagesAhead() {
+        List<CompletableFuture<Response>> requested = new ArrayList<>();
+
+        int count = new PagingClient(2).<Integer>scanPages(i -> i < 4, 10, 1, (start, size) -> {
+            // Only the first page arrives
+            CompletableFuture<Response> response = start == 0
+                    ? CompletableFuture.completedFuture(page(start, size))
+                    : new CompletableFuture<>();
+            requested.add(response);
+            return response;
+        }, (response, h) -> {
+            String[] items = response.body().string().split(",");
+            for (String item : items) {
+                if (!h.handle(Integer.parseInt(item))) {
+                    break;
+                }
+            }
+            return items.length;
+        });
+
+        assertEquals(5, count);
+        // The first page and 2 pages ahead
+        assertEquals(3, requested.size());
+        assertTrue(requested.get(1).isCancelled());
+        assertTrue(requested.get(2).isCancelled());
+    }
+
+    @Test
+    void prefetch() {
+        AtomicInteger calls = new AtomicInteger();
+        List<Integer> results = new ArrayList<>();
+
+        int count = new PagingClient().scan(results::add, 10, 2, pages(35, calls));
+
+        assertEquals(35, count);
+        assertEquals(IntStream.range(0, 35).boxed().collect(Collectors.toList()), results);
+    }
+
+    @Test
+    void prefetchSinglePage() {
+        AtomicInteger calls = new AtomicInteger();
+        List<Integer> results = new ArrayList<>();
+
+        int count = new PagingClient().scan(results::add, 10, 2, pages(5, calls));
+
+        assertEquals(5, count);
+        // No more speculative request after the short page
+        assertTrue(calls.get() <= 2, "Too many pages were requested: " + calls.get());
+    }
+
+    @Test
+    void parallel() {
+        AtomicInteger calls = new AtomicInteger();
+        List<Integer> results = new ArrayList<>();
+
+        int count = new PagingClient().scan(results::add, 10, 4, pages(95, calls));
+
+        assertEquals(95, count);
+        assertEquals(IntStream.range(0, 95).boxed().collect(Collectors.toList()), results);
+    }
+
+    @Test
+    void parallelStoppedByHandler() {
+        AtomicInteger calls = new AtomicInteger();
+        List<Integer> results = new ArrayList<>();
+
+        int count = new PagingClient().scan(i -> {
+            results.add(i);
+            return i < 14;
+        }, 10, 4, pages(95, calls));
+
+        assertEquals(15, count);
+        assertEquals(IntStream.range(0, 15).boxed().collect(Collectors.toList()), results);
+        assertTrue(calls.get() <= 5, "Too many pages were requested: " + calls.get());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import jp.openstandia.connector.util.RenamePlanner;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenamePlannerTest {
+
+    private List<List<RenamePlanner.Step>> plan(String... renames) {
+        List<String> currentCodes = new ArrayList<>();
+        List<String> newCodes = new ArrayList<>();
+        for (String rename : renames) {
+            String[] split = rename.split("->");
+            currentCodes.add(split[0]);
+            newCodes.add(split[1]);
+        }
+        return RenamePlanner.plan(currentCodes, newCodes);
+    }
+
+    /**
+     * Apply the steps one by one and check the new code is always free.
+     */
+    private Set<String> apply(Set<String> codes, List<List<RenamePlanner.Step>> phases) {
+        Set<String> result = new HashSet<>(codes);
+        for (List<RenamePlanner.Step> phase : phases) {
+            for (RenamePlanner.Step step : phase) {
+                assertTrue(result.remove(step.currentCode), "Not found: " + step);
+                assertTrue(result.add(step.newCode), "Conflicted: " + step);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void independent() {
+        List<List<RenamePlanner.Step>> phases = plan("a->x", "b->y");
+
+        assertEquals(1, phases.size());
+        assertEquals(new HashSet<>(Arrays.asList("x", "y")), apply(new HashSet<>(Arrays.asList("a", "b")), phases));
+    }
+
+    @Test
+    void chain() {
+        List<List<RenamePlanner.Step>> phases = plan("a->b", "b->c", "c->d");
+
+        assertEquals(3, phases.size());
+        assertEquals("c->d", phases.get(0).get(0).toString());
+        assertEquals("b->c", phases.get(1).get(0).toString());
+        assertEquals("a->b", phases.get(2).get(0).toString());
+        assertEquals(new HashSet<>(Arrays.asList("b", "c", "d")), apply(new HashSet<>(Arrays.asList("a", "b", "c")), phases));
+    }
+
+    @Test
+    void swap() {
+        List<List<RenamePlanner.Step>> phases = plan("a->b", "b->a");
+
+        assertEquals(3, phases.size());
+        assertTrue(phases.get(0).get(0).temporary);
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), apply(new HashSet<>(Arrays.asList("a", "b")), phases));
+
+        // Each step points to the original rename
+        Set<Integer> indexes = phases.stream().flatMap(p -> p.stream()).map(s -> s.index).collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList(0, 1)), indexes);
+    }
+
+    @Test
+    void cycleWithTail() {
+        List<List<RenamePlanner.Step>> phases = plan("a->b", "b->c", "c->a", "x->y");
+
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", "y")),
+                apply(new HashSet<>(Arrays.asList("a", "b", "c", "x")), phases));
+
+        // The steps of the cycle are tagged to be undone together
+        Map<Integer, Set<Integer>> cycles = phases.stream().flatMap(p -> p.stream())
+                .collect(Collectors.groupingBy(s -> s.cycle, Collectors.mapping(s -> s.index, Collectors.toSet())));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), cycles.get(0));
+        assertEquals(Collections.singleton(3), cycles.get(RenamePlanner.NO_CYCLE));
+    }
+
+    @Test
+    void noChange() {
+        List<List<RenamePlanner.Step>> phases = plan("a->a");
+
+        assertTrue(phases.isEmpty());
+    }
+}
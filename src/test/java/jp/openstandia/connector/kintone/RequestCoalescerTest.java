@@ -0,0 +1,116 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import jp.openstandia.connector.util.RequestCoalescer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    @Test
+    void coalesce() throws Exception {
+        RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>(10, 200);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService executor = Executors.newFixedThreadPool(25);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 25; i++) {
+                final int item = i;
+                results.add(executor.submit(() -> coalescer.submit(item, batch -> {
+                    batchSizes.add(batch.size());
+                    batch.forEach(e -> e.complete(e.getItem() * 2));
+                })));
+            }
+
+            for (int i = 0; i < 25; i++) {
+                assertEquals(i * 2, results.get(i).get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(25, batchSizes.stream().mapToInt(i -> i).sum());
+        assertTrue(batchSizes.stream().allMatch(i -> i <= 10), "Exceeded the max batch size: " + batchSizes);
+        assertTrue(batchSizes.size() < 25, "Not coalesced: " + batchSizes);
+    }
+
+    @Test
+    void failEachEntry() {
+        RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>(10, 0);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> coalescer.submit(1, batch -> {
+            throw new IllegalStateException("error");
+        }));
+        assertEquals("error", e.getMessage());
+
+        RuntimeException itemError = new RuntimeException("item error");
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> coalescer.submit(2, batch -> {
+            batch.forEach(entry -> entry.fail(itemError));
+        }));
+        assertSame(itemError, thrown);
+    }
+
+    @Test
+    void coalesceAsync() throws Exception {
+        RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>(10, 200);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        // Submitted from one thread, no caller waits for the others
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            results.add(coalescer.submitAsync(i, batch -> {
+                batchSizes.add(batch.size());
+                return CompletableFuture.runAsync(() -> batch.forEach(e -> e.complete(e.getItem() * 2)));
+            }));
+        }
+
+        for (int i = 0; i < 25; i++) {
+            assertEquals(i * 2, results.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(Arrays.asList(10, 10, 5), batchSizes);
+    }
+
+    @Test
+    void failEachEntryAsync() {
+        RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>(10, 0);
+
+        CompletableFuture<Integer> thrown = coalescer.submitAsync(1, batch -> {
+            throw new IllegalStateException("error");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> thrown.get(5, TimeUnit.SECONDS));
+        assertEquals("error", e.getCause().getMessage());
+
+        CompletableFuture<Integer> failed = coalescer.submitAsync(2, batch -> {
+            CompletableFuture<Void> f = new CompletableFuture<>();
+            f.completeExceptionally(new IllegalStateException("async error"));
+            return f;
+        });
+        e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertEquals("async error", e.getCause().getMessage());
+
+        CompletableFuture<Integer> noResult = coalescer.submitAsync(3, batch -> CompletableFuture.completedFuture(null));
+        assertThrows(ExecutionException.class, () -> noResult.get(5, TimeUnit.SECONDS));
+    }
+}
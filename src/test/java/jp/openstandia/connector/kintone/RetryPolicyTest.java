@@ -0,0 +1,86 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import jp.openstandia.connector.util.RetryPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    @Test
+    void exponentialBackoffWithFullJitter() {
+        RetryPolicy policy = new RetryPolicy(100, 1000, 30000);
+
+        for (int i = 0; i < 100; i++) {
+            long first = policy.delayMillis(0, null);
+            assertTrue(first >= 0 && first <= 100, "first: " + first);
+
+            long third = policy.delayMillis(2, null);
+            assertTrue(third >= 0 && third <= 400, "third: " + third);
+
+            // Capped by the max delay
+            long many = policy.delayMillis(40, null);
+            assertTrue(many >= 0 && many <= 1000, "many: " + many);
+        }
+    }
+
+    @Test
+    void retryAfterSeconds() {
+        RetryPolicy policy = new RetryPolicy(100, 5000, 30000);
+
+        assertEquals(3000, policy.delayMillis(0, "3"));
+        assertEquals(0, policy.delayMillis(0, "0"));
+        // Capped by the max delay
+        assertEquals(5000, policy.delayMillis(0, "120"));
+    }
+
+    @Test
+    void retryAfterHttpDate() {
+        RetryPolicy policy = new RetryPolicy(100, 5000, 30000);
+
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(2));
+        long delay = policy.delayMillis(0, date);
+        assertTrue(delay > 0 && delay <= 2000, "delay: " + delay);
+
+        String past = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).minusSeconds(10));
+        assertEquals(0, policy.delayMillis(0, past));
+    }
+
+    @Test
+    void invalidRetryAfterFallsBackToBackoff() {
+        RetryPolicy policy = new RetryPolicy(100, 5000, 30000);
+
+        long delay = policy.delayMillis(0, "soon");
+        assertTrue(delay >= 0 && delay <= 100, "delay: " + delay);
+    }
+
+    @Test
+    void budget() {
+        RetryPolicy policy = new RetryPolicy(100, 5000, 1000);
+        long start = System.nanoTime();
+
+        assertTrue(policy.isWithinBudget(start, 500));
+        assertFalse(policy.isWithinBudget(start, 1500));
+        assertFalse(policy.isWithinBudget(start - TimeUnit.SECONDS.toNanos(1), 100));
+    }
+}
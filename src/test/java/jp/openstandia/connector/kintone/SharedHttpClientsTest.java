@@ -0,0 +1,68 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import jp.openstandia.connector.util.SharedHttpClients;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedHttpClientsTest {
+
+    @Test
+    void shareAndRelease() {
+        AtomicInteger created = new AtomicInteger();
+        String key = "https://shared.example.com|null:0|1|2|3";
+
+        OkHttpClient first = SharedHttpClients.acquire(key, () -> {
+            created.incrementAndGet();
+            return new OkHttpClient();
+        });
+        OkHttpClient second = SharedHttpClients.acquire(key, () -> {
+            created.incrementAndGet();
+            return new OkHttpClient();
+        });
+
+        assertSame(first, second);
+        assertEquals(1, created.get());
+
+        // Still referenced by the second one
+        SharedHttpClients.release(key);
+        assertFalse(first.dispatcher().executorService().isShutdown());
+
+        // The last reference closes the client
+        SharedHttpClients.release(key);
+        assertTrue(first.dispatcher().executorService().isShutdown());
+
+        OkHttpClient third = SharedHttpClients.acquire(key, OkHttpClient::new);
+        assertNotSame(first, third);
+        SharedHttpClients.release(key);
+    }
+
+    @Test
+    void differentKey() {
+        OkHttpClient a = SharedHttpClients.acquire("https://a.example.com|null:0|1|2|3", OkHttpClient::new);
+        OkHttpClient b = SharedHttpClients.acquire("https://b.example.com|null:0|1|2|3", OkHttpClient::new);
+
+        assertNotSame(a, b);
+
+        SharedHttpClients.release("https://a.example.com|null:0|1|2|3");
+        SharedHttpClients.release("https://b.example.com|null:0|1|2|3");
+    }
+}
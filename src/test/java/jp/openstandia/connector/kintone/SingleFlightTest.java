@@ -0,0 +1,123 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.identityconnectors.common.security.GuardedString;
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleFlightTest {
+
+    private MockWebServer server;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void teardown() throws Exception {
+        executor.shutdownNow();
+        server.shutdown();
+    }
+
+    private KintoneRESTClient newClient(OkHttpClient httpClient) {
+        KintoneConfiguration configuration = new KintoneConfiguration();
+        configuration.setBaseURL(server.url("/").toString());
+        configuration.setLoginName("admin");
+        configuration.setPassword(new GuardedString("secret".toCharArray()));
+
+        KintoneRESTClient client = new KintoneRESTClient();
+        client.init("kintone", configuration, httpClient);
+        return client;
+    }
+
+    @Test
+    void shareBetweenInstances() throws Exception {
+        // Keep the first request in flight until the second one joins
+        server.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeadersDelay(500, TimeUnit.MILLISECONDS)
+                .setBody("{\"organizations\":[{\"id\":\"1\",\"code\":\"org1\"}]}"));
+        server.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"organizations\":[{\"id\":\"1\",\"code\":\"org1\"}]}"));
+
+        // Each connector instance builds its own http client
+        KintoneRESTClient first = newClient(new OkHttpClient());
+        KintoneRESTClient second = newClient(new OkHttpClient());
+
+        CompletableFuture<KintoneOrganizationModel> a = CompletableFuture.supplyAsync(
+                () -> first.getOrganization(new Uid("1"), null, null), executor);
+        Thread.sleep(100);
+        CompletableFuture<KintoneOrganizationModel> b = CompletableFuture.supplyAsync(
+                () -> second.getOrganization(new Uid("1"), null, null), executor);
+
+        assertEquals("org1", a.get().code);
+        assertEquals("org1", b.get().code);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void notShareAcrossWrite() throws Exception {
+        // The leader's response was read before the update
+        server.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setHeadersDelay(500, TimeUnit.MILLISECONDS)
+                .setBody("{\"organizations\":[{\"id\":\"1\",\"code\":\"org1\",\"name\":\"before\"}]}"));
+        server.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{}"));
+        server.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"organizations\":[{\"id\":\"1\",\"code\":\"org1\",\"name\":\"after\"}]}"));
+
+        KintoneRESTClient first = newClient(new OkHttpClient());
+        KintoneRESTClient second = newClient(new OkHttpClient());
+
+        CompletableFuture<KintoneOrganizationModel> a = CompletableFuture.supplyAsync(
+                () -> first.getOrganization(new Uid("1"), null, null), executor);
+        Thread.sleep(100);
+
+        // The write lands while the leader is still in flight
+        KintoneOrganizationModel update = new KintoneOrganizationModel();
+        update.code = "org1";
+        update.name = "after";
+        second.updateOrganization(new Uid("1", new Name("org1")), update);
+
+        KintoneOrganizationModel b = second.getOrganization(new Uid("1"), null, null);
+
+        assertEquals("after", b.name);
+        assertEquals("before", a.get().name);
+        assertEquals(3, server.getRequestCount());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright Nomura Research Institute, Ltd.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package jp.openstandia.connector.kintone;
+
+import jp.openstandia.connector.util.UrlTemplate;
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlTemplateTest {
+
+    @Test
+    void cached() {
+        assertSame(UrlTemplate.of("https://example.cybozu.com/v1/users.json"),
+                UrlTemplate.of("https://example.cybozu.com/v1/users.json"));
+    }
+
+    @Test
+    void query() {
+        UrlTemplate template = UrlTemplate.of("https://example.cybozu.com/v1/users.json");
+
+        HttpUrl url = template.query()
+                .add("codes", "foo bar")
+                .add("offset", 100)
+                .build();
+
+        assertEquals("foo bar", url.queryParameter("codes"));
+        assertEquals("100", url.queryParameter("offset"));
+
+        // The template itself isn't changed
+        assertNull(template.url().query());
+    }
+
+    @Test
+    void indexed() {
+        HttpUrl url = UrlTemplate.of("https://example.cybozu.com/v1/users.json").query()
+                .addIndexed("codes", Arrays.asList("a", "b"))
+                .build();
+
+        assertEquals(2, url.querySize());
+        assertEquals("a", url.queryParameter("codes[0]"));
+        assertEquals("b", url.queryParameter("codes[1]"));
+    }
+}
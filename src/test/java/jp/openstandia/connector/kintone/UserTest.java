@@ -18,6 +18,7 @@ package jp.openstandia.connector.kintone;
 import jp.openstandia.connector.kintone.testutil.AbstractTest;
 import org.identityconnectors.framework.api.ConnectorFacade;
 import org.identityconnectors.framework.common.exceptions.AlreadyExistsException;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
 import org.identityconnectors.framework.common.exceptions.UnknownUidException;
 import org.identityconnectors.framework.common.objects.*;
 import org.identityconnectors.framework.common.objects.filter.FilterBuilder;
@@ -26,6 +27,11 @@ import org.junit.jupiter.api.Test;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
@@ -367,6 +373,64 @@ class UserTest extends AbstractTest {
         assertEquals(code, targetNewCode.get());
     }
 
+    @Test
+    void updateUserRenamedOutside() {
+        // Given
+        String userId = "12345";
+        String oldCode = "foo";
+        String currentCode = "bar";
+        String newCode = "baz";
+
+        AtomicReference<String> codeInKintone = new AtomicReference<>(oldCode);
+        mockClient.getUserByUid = ((u) -> {
+            KintoneUserModel result = new KintoneUserModel();
+            result.id = u.getUidValue();
+            result.code = codeInKintone.get();
+            return result;
+        });
+
+        // The connector has seen the old code
+        connector.getObject(USER_OBJECT_CLASS, new Uid(userId), defaultGetOperation());
+
+        // Renamed outside the connector, then another user took the old code
+        codeInKintone.set(currentCode);
+
+        Set<AttributeDelta> modifications = new HashSet<>();
+        modifications.add(AttributeDeltaBuilder.build(Name.NAME, newCode));
+        modifications.add(AttributeDeltaBuilder.build("name", "Bar"));
+        modifications.add(AttributeDeltaBuilder.build("groups", list("group1"), null));
+
+        AtomicReference<Uid> targetUid = new AtomicReference<>();
+        AtomicReference<KintoneUserModel> updated = new AtomicReference<>();
+        mockClient.updateUser = ((u, user) -> {
+            targetUid.set(u);
+            updated.set(user);
+        });
+        AtomicReference<String> readGroupsOf = new AtomicReference<>();
+        mockClient.getGroupsForUser = ((c, pageSize) -> {
+            readGroupsOf.set(c);
+            return Stream.empty();
+        });
+        AtomicReference<Uid> targetGroupName = new AtomicReference<>();
+        mockClient.updateGroupsForUser = ((u, g) -> {
+            targetGroupName.set(u);
+        });
+        AtomicReference<Uid> targetRename = new AtomicReference<>();
+        mockClient.renameUser = ((u, n) -> {
+            targetRename.set(u);
+        });
+
+        // When
+        connector.updateDelta(USER_OBJECT_CLASS, new Uid(userId), modifications, new OperationOptionsBuilder().build());
+
+        // Then
+        assertEquals(currentCode, targetUid.get().getNameHintValue());
+        assertEquals(currentCode, updated.get().code);
+        assertEquals(currentCode, readGroupsOf.get());
+        assertEquals(currentCode, targetGroupName.get().getNameHintValue());
+        assertEquals(currentCode, targetRename.get().getNameHintValue());
+    }
+
     @Test
     void updateUserWithInactive() {
         // Given
@@ -1232,6 +1296,95 @@ class UserTest extends AbstractTest {
         assertEquals(code, targetName3.get());
     }
 
+    @Test
+    void getUserByUidWithAssociationConcurrently() throws Exception {
+        // Given
+        String userId = "12345";
+        String code = "foo";
+        List<String> services = list("kintone", "garoon");
+        List<String> organizations = list("org1", "org2");
+        List<String> groups = list("group1", "group2");
+
+        mockClient.getUserByUid = ((u) -> {
+            KintoneUserModel result = new KintoneUserModel();
+            result.id = userId;
+            result.code = code;
+            return result;
+        });
+
+        // Each association read stays in flight until all of them are issued
+        CountDownLatch requested = new CountDownLatch(3);
+        CompletableFuture<List<String>> servicesFuture = new CompletableFuture<>();
+        CompletableFuture<List<String>> organizationsFuture = new CompletableFuture<>();
+        CompletableFuture<List<String>> groupsFuture = new CompletableFuture<>();
+        mockClient.getServicesForUserAsync = ((c) -> {
+            requested.countDown();
+            return servicesFuture;
+        });
+        mockClient.getOrganizationsForUserAsync = ((c) -> {
+            requested.countDown();
+            return organizationsFuture;
+        });
+        mockClient.getGroupsForUserAsync = ((c) -> {
+            requested.countDown();
+            return groupsFuture;
+        });
+
+        AtomicBoolean allRequested = new AtomicBoolean();
+        Thread server = new Thread(() -> {
+            try {
+                allRequested.set(requested.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Respond in the reverse order of the requests
+            groupsFuture.complete(groups);
+            organizationsFuture.complete(organizations);
+            servicesFuture.complete(services);
+        });
+        server.start();
+
+        // When
+        ConnectorObject result = connector.getObject(USER_OBJECT_CLASS, new Uid(userId, new Name(code)),
+                defaultGetOperation("services", "organizations", "groups"));
+        server.join();
+
+        // Then
+        assertTrue(allRequested.get(), "The association reads weren't issued concurrently");
+        assertEquals(services, multiAttr(result, "services"));
+        assertEquals(organizations, multiAttr(result, "organizations"));
+        assertEquals(groups, multiAttr(result, "groups"));
+    }
+
+    @Test
+    void getUserByUidWithAssociationFailure() {
+        // Given
+        String userId = "12345";
+        String code = "foo";
+
+        mockClient.getUserByUid = ((u) -> {
+            KintoneUserModel result = new KintoneUserModel();
+            result.id = userId;
+            result.code = code;
+            return result;
+        });
+
+        CompletableFuture<List<String>> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new ConnectorIOException("Failed to get organizations"));
+        mockClient.getServicesForUserAsync = ((c) -> CompletableFuture.completedFuture(list("kintone")));
+        mockClient.getOrganizationsForUserAsync = ((c) -> failed);
+        mockClient.getGroupsForUserAsync = ((c) -> CompletableFuture.completedFuture(list("group1")));
+
+        // When
+        Throwable e = assertThrows(ConnectorIOException.class, () -> {
+            connector.getObject(USER_OBJECT_CLASS, new Uid(userId, new Name(code)),
+                    defaultGetOperation("services", "organizations", "groups"));
+        });
+
+        // Then
+        assertEquals("Failed to get organizations", e.getMessage());
+    }
+
     @Test
     void getUserByName() {
         // Given
@@ -1413,6 +1566,194 @@ class UserTest extends AbstractTest {
         assertEquals(1, targetOffset.get());
     }
 
+    @Test
+    void getUsersWithServices() {
+        // Given
+        mockClient.getUsers = ((h, size, offset) -> {
+            for (int i = 0; i < 150; i++) {
+                KintoneUserModel result = new KintoneUserModel();
+                result.id = String.valueOf(i);
+                result.code = "user" + i;
+                result.ctime = "2023-01-30T08:29:29Z";
+                result.mtime = "2023-01-30T10:15:10Z";
+                if (!h.handle(result)) {
+                    break;
+                }
+            }
+            return 150;
+        });
+
+        List<List<String>> targetCodes = new ArrayList<>();
+        mockClient.getServicesForUsers = ((codes) -> {
+            targetCodes.add(new ArrayList<>(codes));
+
+            Map<String, List<String>> services = new HashMap<>();
+            services.put("user0", list("kintone", "garoon"));
+            return services;
+        });
+
+        // When
+        List<ConnectorObject> results = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            results.add(connectorObject);
+            return true;
+        };
+        OperationOptions options = new OperationOptionsBuilder()
+                .setReturnDefaultAttributes(true)
+                .setAttributesToGet("services")
+                .build();
+        connector.search(USER_OBJECT_CLASS, null, handler, options);
+
+        // Then
+        assertEquals(150, results.size());
+        assertEquals(2, targetCodes.size(), "Not resolved the services in bulk");
+        assertEquals(100, targetCodes.get(0).size());
+        assertEquals(50, targetCodes.get(1).size());
+        assertEquals(list("kintone", "garoon"), multiAttr(results.get(0), "services"));
+        assertNull(results.get(1).getAttributeByName("services"));
+    }
+
+    @Test
+    void getUsersWithOrganizationsIndex() {
+        // Given
+        mockClient.getUsers = ((h, size, offset) -> {
+            KintoneUserModel result = new KintoneUserModel();
+            result.id = "1";
+            result.code = "a";
+            h.handle(result);
+
+            result = new KintoneUserModel();
+            result.id = "2";
+            result.code = "b";
+            h.handle(result);
+
+            return 2;
+        });
+
+        AtomicInteger indexCalls = new AtomicInteger();
+        mockClient.getOrganizationsIndex = ((size) -> {
+            indexCalls.incrementAndGet();
+
+            Map<String, List<String>> index = new HashMap<>();
+            index.put("a", list("org1", "org2$title1"));
+            return index;
+        });
+        mockClient.getOrganizationsForUser = ((u, size) -> {
+            fail("Unexpected fetching organizations per user");
+            return null;
+        });
+
+        // When
+        List<ConnectorObject> results = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            results.add(connectorObject);
+            return true;
+        };
+        OperationOptions options = new OperationOptionsBuilder()
+                .setReturnDefaultAttributes(true)
+                .setAttributesToGet("organizations")
+                .build();
+        connector.search(USER_OBJECT_CLASS, null, handler, options);
+
+        // Then
+        assertEquals(2, results.size());
+        assertEquals(1, indexCalls.get());
+        assertEquals(list("org1", "org2$title1"), multiAttr(results.get(0), "organizations"));
+        assertNull(results.get(1).getAttributeByName("organizations"));
+    }
+
+    @Test
+    void getUserOrganizationsWithIgnoreConfigByIndexAndPerUser() {
+        // Apply configuration for this test
+        configuration.setIgnoreOrganization(new String[]{"NotManagedOrg"});
+        ConnectorFacade connector = newFacade(configuration);
+
+        // Given
+        String userId = "12345";
+        String code = "foo";
+        List<String> organizations = list("org1", "NotManagedOrg", "NotManagedOrg#title1", "org2#title2");
+
+        mockClient.getUserByUid = ((u) -> {
+            KintoneUserModel result = new KintoneUserModel();
+            result.id = userId;
+            result.code = code;
+            return result;
+        });
+        mockClient.getOrganizationsForUser = ((u, size) -> organizations.stream());
+
+        mockClient.getUsers = ((h, size, offset) -> {
+            KintoneUserModel result = new KintoneUserModel();
+            result.id = userId;
+            result.code = code;
+            h.handle(result);
+            return 1;
+        });
+        mockClient.getOrganizationsIndex = ((size) -> {
+            Map<String, List<String>> index = new HashMap<>();
+            index.put(code, organizations);
+            return index;
+        });
+
+        // When
+        ConnectorObject perUser = connector.getObject(USER_OBJECT_CLASS, new Uid(userId, new Name(code)),
+                defaultGetOperation("organizations"));
+
+        List<ConnectorObject> results = new ArrayList<>();
+        OperationOptions options = new OperationOptionsBuilder()
+                .setReturnDefaultAttributes(true)
+                .setAttributesToGet("organizations")
+                .build();
+        connector.search(USER_OBJECT_CLASS, null, results::add, options);
+
+        // Then
+        assertEquals(1, results.size());
+        assertEquals(list("org1", "org2#title2"), multiAttr(perUser, "organizations"));
+        assertEquals(multiAttr(perUser, "organizations"), multiAttr(results.get(0), "organizations"));
+    }
+
+    @Test
+    void getUsersWithGroupsIndex() {
+        // Given
+        mockClient.getUsers = ((h, size, offset) -> {
+            KintoneUserModel result = new KintoneUserModel();
+            result.id = "1";
+            result.code = "a";
+            h.handle(result);
+
+            return 1;
+        });
+
+        AtomicInteger indexCalls = new AtomicInteger();
+        mockClient.getGroupsIndex = ((size) -> {
+            indexCalls.incrementAndGet();
+
+            Map<String, List<String>> index = new HashMap<>();
+            index.put("a", list("group1", "group2"));
+            return index;
+        });
+        mockClient.getGroupsForUser = ((u, size) -> {
+            fail("Unexpected fetching groups per user");
+            return null;
+        });
+
+        // When
+        List<ConnectorObject> results = new ArrayList<>();
+        ResultsHandler handler = connectorObject -> {
+            results.add(connectorObject);
+            return true;
+        };
+        OperationOptions options = new OperationOptionsBuilder()
+                .setReturnDefaultAttributes(true)
+                .setAttributesToGet("groups")
+                .build();
+        connector.search(USER_OBJECT_CLASS, null, handler, options);
+
+        // Then
+        assertEquals(1, results.size());
+        assertEquals(1, indexCalls.get());
+        assertEquals(list("group1", "group2"), multiAttr(results.get(0), "groups"));
+    }
+
     @Test
     void deleteUser() {
         // Given
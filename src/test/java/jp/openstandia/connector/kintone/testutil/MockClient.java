@@ -27,7 +27,10 @@ import org.identityconnectors.framework.common.objects.OperationOptions;
 import org.identityconnectors.framework.common.objects.Uid;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class MockClient extends KintoneRESTClient {
@@ -45,14 +48,20 @@ public class MockClient extends KintoneRESTClient {
 
     // User-Service
     public MockBiFunction<String, Integer, Stream<String>> getServicesForUser;
+    public MockFunction<String, CompletableFuture<List<String>>> getServicesForUserAsync;
+    public MockFunction<List<String>, Map<String, List<String>>> getServicesForUsers;
     public MockBiConsumer<Uid, List<String>> updateServicesForUser;
 
     // User-Organization
     public MockBiFunction<String, Integer, Stream<String>> getOrganizationsForUser;
+    public MockFunction<String, CompletableFuture<List<String>>> getOrganizationsForUserAsync;
+    public MockFunction<Integer, Map<String, List<String>>> getOrganizationsIndex;
     public MockBiConsumer<Uid, List<String>> updateOrganizationsForUser;
 
     // User-Group
     public MockBiFunction<String, Integer, Stream<String>> getGroupsForUser;
+    public MockFunction<String, CompletableFuture<List<String>>> getGroupsForUserAsync;
+    public MockFunction<Integer, Map<String, List<String>>> getGroupsIndex;
     public MockBiConsumer<Uid, List<String>> updateGroupsForUser;
 
     // Group
@@ -117,11 +126,21 @@ public class MockClient extends KintoneRESTClient {
         return getUserByUid.apply(uid);
     }
 
+    @Override
+    public CompletableFuture<KintoneUserModel> getUserAsync(Uid uid, Set<String> fetchFieldsSet) {
+        return CompletableFuture.completedFuture(getUserByUid.apply(uid));
+    }
+
     @Override
     public KintoneUserModel getUser(Name name, OperationOptions options, Set<String> fetchFieldsSet) throws UnknownUidException {
         return getUserByName.apply(name);
     }
 
+    @Override
+    public CompletableFuture<KintoneUserModel> getUserAsync(Name name, Set<String> fetchFieldsSet) {
+        return CompletableFuture.completedFuture(getUserByName.apply(name));
+    }
+
     @Override
     public int getUsers(QueryHandler<KintoneUserModel> handler, OperationOptions options, Set<String> fetchFieldsSet, int pageSize, int pageOffset) {
         return getUsers.apply(handler, pageSize, pageOffset);
@@ -139,6 +158,20 @@ public class MockClient extends KintoneRESTClient {
         return getServicesForUser.apply(code, pageSize);
     }
 
+    @Override
+    public CompletableFuture<List<String>> getServicesForUserAsync(String code) {
+        if (getServicesForUserAsync != null) {
+            return getServicesForUserAsync.apply(code);
+        }
+        return CompletableFuture.completedFuture(getServicesForUser.apply(code, configuration.getDefaultQueryPageSize())
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Map<String, List<String>> getServicesForUsers(List<String> codes) {
+        return getServicesForUsers.apply(codes);
+    }
+
     @Override
     public void updateServicesForUser(Uid uid, List<String> services) {
         updateServicesForUser.accept(uid, services);
@@ -151,6 +184,20 @@ public class MockClient extends KintoneRESTClient {
         return getOrganizationsForUser.apply(code, pageSize);
     }
 
+    @Override
+    public CompletableFuture<List<String>> getOrganizationsForUserAsync(String code) {
+        if (getOrganizationsForUserAsync != null) {
+            return getOrganizationsForUserAsync.apply(code);
+        }
+        return CompletableFuture.completedFuture(getOrganizationsForUser.apply(code, configuration.getDefaultQueryPageSize())
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Map<String, List<String>> getOrganizationsIndex(int pageSize) {
+        return getOrganizationsIndex.apply(pageSize);
+    }
+
     @Override
     public void updateOrganizationsForUser(Uid uid, List<String> organizations) {
         updateOrganizationsForUser.accept(uid, organizations);
@@ -163,6 +210,20 @@ public class MockClient extends KintoneRESTClient {
         return getGroupsForUser.apply(code, pageSize);
     }
 
+    @Override
+    public CompletableFuture<List<String>> getGroupsForUserAsync(String code) {
+        if (getGroupsForUserAsync != null) {
+            return getGroupsForUserAsync.apply(code);
+        }
+        return CompletableFuture.completedFuture(getGroupsForUser.apply(code, configuration.getDefaultQueryPageSize())
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Map<String, List<String>> getGroupsIndex(int pageSize) {
+        return getGroupsIndex.apply(pageSize);
+    }
+
     @Override
     public void updateGroupsForUser(Uid uid, List<String> groups) {
         updateGroupsForUser.accept(uid, groups);
@@ -195,6 +256,16 @@ public class MockClient extends KintoneRESTClient {
         return getOrganizationByName.apply(name);
     }
 
+    @Override
+    public CompletableFuture<KintoneOrganizationModel> getOrganizationAsync(Uid uid, Set<String> fetchFieldsSet) {
+        return CompletableFuture.completedFuture(getOrganizationByUid.apply(uid));
+    }
+
+    @Override
+    public CompletableFuture<KintoneOrganizationModel> getOrganizationAsync(Name name, Set<String> fetchFieldsSet) {
+        return CompletableFuture.completedFuture(getOrganizationByName.apply(name));
+    }
+
     @Override
     public int getOrganizations(QueryHandler<KintoneOrganizationModel> handler, OperationOptions options, Set<String> fetchFieldsSet, int pageSize, int pageOffset) {
         return getOrganizations.apply(handler, pageSize, pageOffset);
@@ -232,6 +303,16 @@ public class MockClient extends KintoneRESTClient {
         return getGroupByName.apply(name);
     }
 
+    @Override
+    public CompletableFuture<KintoneGroupModel> getGroupAsync(Uid uid, Set<String> fetchFieldsSet) {
+        return CompletableFuture.completedFuture(getGroupByUid.apply(uid));
+    }
+
+    @Override
+    public CompletableFuture<KintoneGroupModel> getGroupAsync(Name name, Set<String> fetchFieldsSet) {
+        return CompletableFuture.completedFuture(getGroupByName.apply(name));
+    }
+
     @Override
     public int getGroups(QueryHandler<KintoneGroupModel> handler, OperationOptions options, Set<String> fetchFieldsSet, int pageSize, int pageOffset) {
         return getGroups.apply(handler, pageSize, pageOffset);